@@ -4,12 +4,15 @@ package com.ithra.library.config;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.vision.v1.ImageAnnotatorClient;
 import com.google.cloud.vision.v1.ImageAnnotatorSettings;
+import com.ithra.library.service.CallLimiter;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import java.io.FileInputStream;
@@ -30,10 +33,14 @@ public class AppConfig {
     @Value("${app.processing.queue-capacity}")
     private int queueCapacity;
 
+    @Value("${app.processing.virtual-threads:false}")
+    private boolean virtualThreads;
+
     /**
-     * Google Cloud Vision API Client
+     * Google Cloud Vision API Client, only needed by the cloud vision backend
      */
     @Bean
+    @ConditionalOnProperty(name = "app.vision.backend", havingValue = "cloud", matchIfMissing = true)
     public ImageAnnotatorClient imageAnnotatorClient() throws Exception {
         log.info("Initializing Google Cloud Vision client");
 
@@ -48,10 +55,18 @@ public class AppConfig {
     }
 
     /**
-     * Thread pool for async processing
+     * Thread pool for async processing, or one virtual thread per task when
+     * app.processing.virtual-threads is enabled
      */
     @Bean(name = "taskExecutor")
     public Executor taskExecutor() {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("MediaProcessor-");
+            executor.setVirtualThreads(true);
+            log.info("Async processing runs on virtual threads");
+            return executor;
+        }
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(threadPoolSize);
         executor.setMaxPoolSize(threadPoolSize * 2);
@@ -61,6 +76,47 @@ public class AppConfig {
         return executor;
     }
 
+    /**
+     * Vision batch sends and detection post-processing, kept off the task executor whose
+     * threads block on the frames of the uploads they process. Sized to the vision call
+     * limit; when saturated the submitting thread runs the task itself, so nothing is dropped.
+     */
+    @Bean(name = "visionExecutor")
+    public Executor visionExecutor(@Value("${app.vision.max-concurrent-calls:16}") int maxCalls,
+                                   @Value("${app.vision.executor.queue-capacity:256}") int capacity) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("VisionWorker-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxCalls);
+        executor.setMaxPoolSize(maxCalls);
+        executor.setQueueCapacity(capacity);
+        executor.setThreadNamePrefix("VisionWorker-");
+        // Also after shutdown, so pending frames still complete
+        executor.setRejectedExecutionHandler((task, pool) -> task.run());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Concurrency limit for vision backend calls
+     */
+    @Bean
+    public CallLimiter visionCallLimiter(@Value("${app.vision.max-concurrent-calls:16}") int maxCalls) {
+        return new CallLimiter("vision", maxCalls);
+    }
+
+    /**
+     * Concurrency limit for OpenAI calls
+     */
+    @Bean
+    public CallLimiter openAiCallLimiter(@Value("${app.openai.max-concurrent-calls:8}") int maxCalls) {
+        return new CallLimiter("openai", maxCalls);
+    }
+
     /**
      * ModelMapper for DTO conversions
      */
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.ithra.library.service.FrameAnalysisCache;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CachingConfigurer;
@@ -28,6 +29,9 @@ public class CacheConfig implements CachingConfigurer {
     @Value("${app.cache.ttl:300}")
     private long cacheTtl;
 
+    @Value("${app.vision.cache.shared-ttl:86400}")
+    private long frameAnalysisTtl;
+
     @Bean
     public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
         ObjectMapper objectMapper = createObjectMapper();
@@ -49,6 +53,8 @@ public class CacheConfig implements CachingConfigurer {
 
         return RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(cacheConfig)
+                .withCacheConfiguration(FrameAnalysisCache.SHARED_CACHE_NAME,
+                        cacheConfig.entryTtl(Duration.ofSeconds(frameAnalysisTtl)))
                 .transactionAware()
                 .build();
     }
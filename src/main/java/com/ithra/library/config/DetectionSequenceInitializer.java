@@ -0,0 +1,48 @@
+package com.ithra.library.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Moves the detection id sequences past ids that were generated by the old
+ * IDENTITY columns, so pooled sequence ids never collide with existing rows.
+ * Runs after Hibernate has created the sequences and before any request is served.
+ */
+@Component
+@Slf4j
+public class DetectionSequenceInitializer {
+
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "detected_persons_seq", "detected_persons",
+            "detected_objects_seq", "detected_objects",
+            "detected_books_seq", "detected_books"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // The EntityManagerFactory dependency guarantees the schema update has run
+    public DetectionSequenceInitializer(JdbcTemplate jdbcTemplate,
+                                        EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignSequences() {
+        SEQUENCES.forEach((sequence, table) -> {
+            try {
+                // With the pooled optimizer the next block starts right after the set value
+                Long value = jdbcTemplate.queryForObject(String.format(
+                        "SELECT setval('%1$s', GREATEST((SELECT COALESCE(MAX(id), 0) FROM %2$s), " +
+                                "(SELECT last_value FROM %1$s)))", sequence, table), Long.class);
+                log.debug("Sequence {} aligned to {}", sequence, value);
+            } catch (Exception e) {
+                log.warn("Could not align sequence {}: {}", sequence, e.getMessage());
+            }
+        });
+    }
+}
@@ -1,5 +1,11 @@
 package com.ithra.library.config;
 
+import com.ithra.library.dto.DecodeStrategy;
+import com.ithra.library.service.AdaptiveFrameSampler;
+import com.ithra.library.service.FrameChangeGate;
+import com.ithra.library.service.FrameEncoder;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bytedeco.javacv.FFmpegFrameGrabber;
 import org.bytedeco.javacv.Frame;
@@ -7,75 +13,455 @@ import org.bytedeco.javacv.Java2DFrameConverter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class VideoProcessingService {
 
+    /** Marks the end of a segment's queue */
+    private static final VideoFrame END_OF_SEGMENT = new VideoFrame();
+
+    private final FrameEncoder frameEncoder;
+
     @Value("${app.frame.extraction.interval:30}")
     private int frameInterval;
 
+    @Value("${app.frame.dedup.enabled:true}")
+    private boolean dedupEnabled;
+
+    @Value("${app.frame.dedup.max-distance:3}")
+    private int dedupMaxDistance;
+
+    @Value("${app.frame.adaptive.enabled:true}")
+    private boolean adaptiveEnabled;
+
+    @Value("${app.frame.adaptive.min-interval:10}")
+    private int adaptiveMinInterval;
+
+    @Value("${app.frame.adaptive.max-interval:120}")
+    private int adaptiveMaxInterval;
+
+    @Value("${app.frame.adaptive.active-distance:12}")
+    private int adaptiveActiveDistance;
+
+    @Value("${app.frame.decode-strategy:SEQUENTIAL}")
+    private DecodeStrategy defaultDecodeStrategy;
+
+    @Value("${app.frame.segments.count:0}")
+    private int segmentCount;
+
+    @Value("${app.frame.segments.min-frames:3600}")
+    private int segmentMinFrames;
+
+    // Sampled frames per segment; at most count x buffer-size frames are buffered per upload
+    @Value("${app.frame.segments.buffer-size:16}")
+    private int segmentBufferSize;
+
+    private ForkJoinPool segmentPool;
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (segmentPool != null) {
+            segmentPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Extract all sampled frames into memory.
+     * Prefer {@link #streamFrames(String)} for anything longer than a short clip.
+     */
     public List<VideoFrame> extractFrames(String videoPath) {
-        List<VideoFrame> frames = new ArrayList<>();
+        try (Stream<VideoFrame> frames = streamFrames(videoPath)) {
+            List<VideoFrame> result = frames.collect(Collectors.toList());
+            log.info("Extracted {} frames from video", result.size());
+            return result;
+        }
+    }
+
+    /**
+     * Lazily decode sampled frames one at a time with the default decode strategy.
+     * Only the frame currently being consumed is held in memory; the grabber
+     * is released when the stream is closed, so callers must use try-with-resources.
+     */
+    public Stream<VideoFrame> streamFrames(String videoPath) {
+        return streamFrames(videoPath, null);
+    }
+
+    /**
+     * Lazily decode sampled frames with the given strategy, or the default when null
+     */
+    public Stream<VideoFrame> streamFrames(String videoPath, DecodeStrategy strategy) {
+        DecodeStrategy decodeStrategy = strategy != null ? strategy : defaultDecodeStrategy;
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoPath);
+        if (decodeStrategy == DecodeStrategy.KEYFRAMES) {
+            // The codec drops non-keyframes before decoding them
+            grabber.setVideoOption("skip_frame", "nokey");
+        }
 
         try {
-            FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoPath);
             grabber.start();
+        } catch (Exception e) {
+            log.error("Error opening video for frame extraction", e);
+            releaseGrabber(grabber);
+            return Stream.empty();
+        }
 
+        log.info("Processing video: {} frames at {} fps ({} decoding)",
+                grabber.getLengthInFrames(), grabber.getFrameRate(), decodeStrategy);
+
+        if (decodeStrategy == DecodeStrategy.PARALLEL_SEGMENTS) {
+            int lengthInFrames = grabber.getLengthInFrames();
             double frameRate = grabber.getFrameRate();
-            int totalFrames = grabber.getLengthInFrames();
+            releaseGrabber(grabber);
+
+            int segmentLength = segmentLength();
+            if (lengthInFrames <= 0 || lengthInFrames < segmentMinFrames || lengthInFrames <= segmentLength) {
+                log.info("Video too short to split, decoding sequentially");
+                return streamFrames(videoPath, DecodeStrategy.SEQUENTIAL);
+            }
+            return streamSegments(videoPath, lengthInFrames, frameRate, segmentLength);
+        }
+
+        FrameSpliterator spliterator = new FrameSpliterator(grabber, decodeStrategy);
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> {
+                    releaseGrabber(grabber);
+                    log.info("Streamed {} frames from video", spliterator.emitted);
+                });
+    }
+
+    private void releaseGrabber(FFmpegFrameGrabber grabber) {
+        try {
+            grabber.stop();
+            grabber.release();
+        } catch (Exception e) {
+            log.error("Error releasing frame grabber", e);
+        }
+    }
+
+    /**
+     * Segment length in frames such that a segment never samples more than buffer-size frames,
+     * even at the shortest sampling interval; a multiple of the sampling interval, so fixed
+     * sampling hits the same frames as sequential decoding
+     */
+    private int segmentLength() {
+        int step = Math.max(1, frameInterval);
+        int minInterval = adaptiveEnabled ? Math.max(1, Math.min(adaptiveMinInterval, step)) : step;
+        return Math.max(step, Math.max(1, segmentBufferSize) * minInterval / step * step);
+    }
+
+    private int segmentParallelism() {
+        return segmentCount > 0 ? segmentCount : Runtime.getRuntime().availableProcessors();
+    }
 
-            log.info("Processing video: {} frames at {} fps", totalFrames, frameRate);
+    private Stream<VideoFrame> streamSegments(String videoPath, int lengthInFrames,
+                                              double frameRate, int segmentLength) {
+        SegmentedFrameSpliterator spliterator =
+                new SegmentedFrameSpliterator(videoPath, lengthInFrames, frameRate, segmentLength);
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> {
+                    spliterator.cancel();
+                    log.info("Streamed {} frames from {} video segments",
+                            spliterator.emitted, spliterator.segments);
+                });
+    }
+
+    private synchronized ForkJoinPool segmentPool() {
+        if (segmentPool == null) {
+            segmentPool = new ForkJoinPool(segmentParallelism());
+        }
+        return segmentPool;
+    }
+
+    /**
+     * Build the frame for a sampled image: JPEG encoded if it changed, flagged unchanged otherwise
+     */
+    private VideoFrame toVideoFrame(BufferedImage image, int frameNumber, double frameRate,
+                                    FrameChangeGate changeGate, AdaptiveFrameSampler sampler)
+            throws IOException {
+        VideoFrame videoFrame = new VideoFrame();
+        videoFrame.setFrameNumber(frameNumber);
+        videoFrame.setTimestamp(frameNumber / frameRate);
+
+        boolean changed = changeGate.hasChanged(image);
+        sampler.record(changeGate.getLastDistance());
+
+        if (changed) {
+            videoFrame.setImage(frameEncoder.encode(image));
+        } else {
+            videoFrame.setUnchanged(true);
+        }
 
-            Java2DFrameConverter converter = new Java2DFrameConverter();
-            int frameCount = 0;
+        log.debug("Extracted frame {} at timestamp {}", frameNumber, videoFrame.getTimestamp());
+        return videoFrame;
+    }
+
+    private AdaptiveFrameSampler newSampler() {
+        if (!adaptiveEnabled) {
+            return AdaptiveFrameSampler.fixed(frameInterval);
+        }
+        return new AdaptiveFrameSampler(frameInterval, adaptiveMinInterval, adaptiveMaxInterval,
+                dedupMaxDistance, adaptiveActiveDistance);
+    }
+
+    /**
+     * Pulls frames from the grabber on demand and emits the frames chosen by the
+     * {@link AdaptiveFrameSampler} as JPEG encoded {@link VideoFrame}s.
+     * Frames that are near-duplicates of the last emitted image are flagged
+     * as unchanged and are not encoded. With SEEK and KEYFRAMES decoding, frame
+     * numbers are derived from the decoded frame's timestamp.
+     */
+    private class FrameSpliterator extends Spliterators.AbstractSpliterator<VideoFrame> {
+        private final FFmpegFrameGrabber grabber;
+        private final DecodeStrategy decodeStrategy;
+        private final Java2DFrameConverter converter = new Java2DFrameConverter();
+        private final FrameChangeGate changeGate = new FrameChangeGate(dedupEnabled, dedupMaxDistance);
+        private final AdaptiveFrameSampler sampler = newSampler();
+        private final double frameRate;
+        private final int lengthInFrames;
+        private int frameCount = 0;
+        private int nextSeekFrame = 0;
+        private int emitted = 0;
+
+        FrameSpliterator(FFmpegFrameGrabber grabber, DecodeStrategy decodeStrategy) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.grabber = grabber;
+            this.decodeStrategy = decodeStrategy;
+            this.frameRate = grabber.getFrameRate();
+            this.lengthInFrames = grabber.getLengthInFrames();
+        }
+
+        /**
+         * Grab the next candidate frame, or null at the end of the video
+         */
+        private Frame grabNext() throws Exception {
+            if (decodeStrategy == DecodeStrategy.SEEK && nextSeekFrame > 0) {
+                if (lengthInFrames > 0 && nextSeekFrame >= lengthInFrames) {
+                    return null;
+                }
+                grabber.setFrameNumber(nextSeekFrame);
+            }
+            return grabber.grabImage();
+        }
+
+        private int frameNumberOf(Frame frame) {
+            if (decodeStrategy == DecodeStrategy.SEQUENTIAL) {
+                return frameCount++;
+            }
+            return (int) Math.round(frame.timestamp * frameRate / 1_000_000d);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super VideoFrame> action) {
+            try {
+                Frame frame;
+                while ((frame = grabNext()) != null) {
+                    int current = frameNumberOf(frame);
+                    if (decodeStrategy == DecodeStrategy.SEEK) {
+                        // Every seek lands on a sample point; always move forward even if it fell short
+                        current = Math.max(current, nextSeekFrame);
+                        nextSeekFrame = current + sampler.getInterval();
+                    } else if (!sampler.shouldSample(current)) {
+                        continue;
+                    }
 
-            Frame frame;
-            while ((frame = grabber.grabImage()) != null) {
-                if (frameCount % frameInterval == 0) {
                     BufferedImage bufferedImage = converter.convert(frame);
+                    if (bufferedImage == null) {
+                        continue;
+                    }
 
-                    if (bufferedImage != null) {
-                        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                        ImageIO.write(bufferedImage, "jpg", baos);
-                        byte[] imageBytes = baos.toByteArray();
+                    VideoFrame videoFrame =
+                            toVideoFrame(bufferedImage, current, frameRate, changeGate, sampler);
+                    if (decodeStrategy == DecodeStrategy.SEEK) {
+                        nextSeekFrame = current + sampler.getInterval();
+                    }
+
+                    emitted++;
+                    action.accept(videoFrame);
+                    return true;
+                }
+            } catch (Exception e) {
+                log.error("Error extracting frames from video", e);
+            }
+            return false;
+        }
+    }
 
-                        double timestamp = frameCount / frameRate;
+    /**
+     * Splits the video into many short contiguous frame ranges, each sampling at most
+     * buffer-size frames, and decodes up to {@code parallelism} of them ahead of the
+     * consumer, each with its own grabber, on a fork-join pool. The consumer drains the
+     * segments in order, so frames come out in timestamp order; when a segment is drained
+     * the next one is started. Memory stays at parallelism x buffer-size frames while all
+     * workers keep decoding. Change detection and sampling restart at every segment boundary.
+     */
+    private class SegmentedFrameSpliterator extends Spliterators.AbstractSpliterator<VideoFrame> {
+        private final String videoPath;
+        private final double frameRate;
+        private final int segmentLength;
+        private final int segments;
+        // Started segments in frame order; the head is the one being drained
+        private final Deque<Segment> started = new ArrayDeque<>();
+        private volatile boolean cancelled;
+        private int nextSegment = 0;
+        private int emitted = 0;
+
+        SegmentedFrameSpliterator(String videoPath, int lengthInFrames, double frameRate, int segmentLength) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.videoPath = videoPath;
+            this.frameRate = frameRate;
+            this.segmentLength = segmentLength;
+            this.segments = (lengthInFrames + segmentLength - 1) / segmentLength;
+
+            int ahead = Math.min(segments, segmentParallelism());
+            for (int i = 0; i < ahead; i++) {
+                startNext();
+            }
+        }
 
-                        VideoFrame videoFrame = new VideoFrame();
-                        videoFrame.setFrameNumber(frameCount);
-                        videoFrame.setTimestamp(timestamp);
-                        videoFrame.setImageBytes(imageBytes);
+        /**
+         * Start decoding the next segment; the last one runs to the end of the video
+         */
+        private synchronized void startNext() {
+            if (cancelled || nextSegment >= segments) {
+                return;
+            }
+            int start = nextSegment * segmentLength;
+            int end = nextSegment == segments - 1 ? Integer.MAX_VALUE : start + segmentLength;
+            nextSegment++;
 
-                        frames.add(videoFrame);
+            BlockingQueue<VideoFrame> queue = new ArrayBlockingQueue<>(Math.max(1, segmentBufferSize));
+            started.addLast(new Segment(queue,
+                    segmentPool().submit(() -> decodeSegment(videoPath, start, end, frameRate, queue))));
+        }
 
-                        log.debug("Extracted frame {} at timestamp {}", frameCount, timestamp);
+        @Override
+        public boolean tryAdvance(Consumer<? super VideoFrame> action) {
+            try {
+                Segment current;
+                while ((current = head()) != null) {
+                    VideoFrame frame = current.queue().take();
+                    if (frame == END_OF_SEGMENT) {
+                        synchronized (this) {
+                            started.pollFirst();
+                        }
+                        startNext();
+                        continue;
                     }
+                    emitted++;
+                    action.accept(frame);
+                    return true;
                 }
-                frameCount++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
             }
+            return false;
+        }
 
-            grabber.stop();
-            grabber.release();
+        private synchronized Segment head() {
+            return started.peekFirst();
+        }
 
-            log.info("Extracted {} frames from video", frames.size());
+        synchronized void cancel() {
+            cancelled = true;
+            for (Segment segment : started) {
+                segment.task().cancel(true);
+                segment.queue().clear();
+            }
+            started.clear();
+        }
 
-        } catch (Exception e) {
-            log.error("Error extracting frames from video", e);
+        private void decodeSegment(String videoPath, int start, int end, double frameRate,
+                                   BlockingQueue<VideoFrame> queue) {
+            FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoPath);
+            try {
+                grabber.start();
+                if (start > 0) {
+                    grabber.setFrameNumber(start);
+                }
+
+                Java2DFrameConverter converter = new Java2DFrameConverter();
+                FrameChangeGate changeGate = new FrameChangeGate(dedupEnabled, dedupMaxDistance);
+                AdaptiveFrameSampler sampler = newSampler();
+
+                Frame frame;
+                while (!cancelled && (frame = grabber.grabImage()) != null) {
+                    int current = (int) Math.round(frame.timestamp * frameRate / 1_000_000d);
+                    if (current >= end) {
+                        break;
+                    }
+                    if (current < start || !sampler.shouldSample(current)) {
+                        continue;
+                    }
+
+                    BufferedImage bufferedImage = converter.convert(frame);
+                    if (bufferedImage != null) {
+                        put(queue, toVideoFrame(bufferedImage, current, frameRate, changeGate, sampler));
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Error decoding video segment starting at frame {}", start, e);
+            } finally {
+                releaseGrabber(grabber);
+                put(queue, END_OF_SEGMENT);
+            }
         }
 
-        return frames;
+        /**
+         * Blocks while the segment's queue is full. Uses a managed block so the pool adds
+         * a spare worker meanwhile; otherwise segments of concurrent uploads could occupy
+         * every worker while the segments their consumers wait on are still queued.
+         */
+        private void put(BlockingQueue<VideoFrame> queue, VideoFrame frame) {
+            try {
+                ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                    private boolean done;
+
+                    @Override
+                    public boolean block() throws InterruptedException {
+                        while (!cancelled && !done) {
+                            done = queue.offer(frame, 100, TimeUnit.MILLISECONDS);
+                        }
+                        return true;
+                    }
+
+                    @Override
+                    public boolean isReleasable() {
+                        return cancelled || done || (done = queue.offer(frame));
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private record Segment(BlockingQueue<VideoFrame> queue, Future<?> task) {
     }
 
     public static class VideoFrame {
         private int frameNumber;
         private double timestamp;
-        private byte[] imageBytes;
+        private FrameEncoder.EncodedFrame image;
+        private boolean unchanged;
 
         public int getFrameNumber() {
             return frameNumber;
@@ -93,12 +479,28 @@ public class VideoProcessingService {
             this.timestamp = timestamp;
         }
 
-        public byte[] getImageBytes() {
-            return imageBytes;
+        /**
+         * JPEG encoded frame, ready to be placed in a Vision request without copying,
+         * with the scale it was downscaled by
+         */
+        public FrameEncoder.EncodedFrame getImage() {
+            return image;
+        }
+
+        public void setImage(FrameEncoder.EncodedFrame image) {
+            this.image = image;
+        }
+
+        /**
+         * True if the frame is a near-duplicate of the previous emitted frame;
+         * such frames carry no image.
+         */
+        public boolean isUnchanged() {
+            return unchanged;
         }
 
-        public void setImageBytes(byte[] imageBytes) {
-            this.imageBytes = imageBytes;
+        public void setUnchanged(boolean unchanged) {
+            this.unchanged = unchanged;
         }
     }
 }
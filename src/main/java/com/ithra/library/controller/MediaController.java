@@ -31,11 +31,14 @@ public class MediaController {
     private final MediaAnalysisService mediaAnalysisService;
 
     /**
-     * Upload and analyze media file
+     * Upload and analyze media file; the optional decodeStrategy applies to videos,
+     * featureProfile selects the Vision features requested per frame
      */
     @PostMapping("/upload")
     public ResponseEntity<MediaAnalysisResult> uploadFile(
-            @RequestParam("file") MultipartFile file) {
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) DecodeStrategy decodeStrategy,
+            @RequestParam(required = false) VisionFeatureProfile featureProfile) {
         try {
             log.info("Uploading file: {}", file.getOriginalFilename());
 
@@ -43,7 +46,12 @@ public class MediaController {
                 return ResponseEntity.badRequest().build();
             }
 
-            MediaFile mediaFile = mediaAnalysisService.uploadFile(file);
+            AnalysisOptions options = AnalysisOptions.builder()
+                    .decodeStrategy(decodeStrategy)
+                    .featureProfile(featureProfile)
+                    .build();
+
+            MediaFile mediaFile = mediaAnalysisService.uploadFile(file, options);
             MediaAnalysisResult result = mediaAnalysisService
                     .getAnalysisResult(mediaFile.getId());
 
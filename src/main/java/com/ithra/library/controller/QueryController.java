@@ -1,13 +1,18 @@
 package com.ithra.library.controller;
 
+import com.ithra.library.dto.GlobalSearchRequest;
+import com.ithra.library.dto.KeywordSearchResult;
 import com.ithra.library.dto.QueryRequest;
 import com.ithra.library.dto.QueryResponse;
+import com.ithra.library.service.GlobalSearchService;
 import com.ithra.library.service.QueryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -19,6 +24,7 @@ import java.util.List;
 public class QueryController {
 
     private final QueryService queryService;
+    private final GlobalSearchService globalSearchService;
 
     /**
      * Process natural language query
@@ -38,6 +44,24 @@ public class QueryController {
         }
     }
 
+    /**
+     * Search detections across all media files, streamed as NDJSON (one result per line).
+     * Page with the detectedAt and id of the last line as afterDetectedAt / afterId.
+     */
+    @PostMapping(value = "/global", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> globalSearch(
+            @RequestBody GlobalSearchRequest request) {
+        try {
+            log.info("Global {} search", request.getType());
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(globalSearchService.search(request));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid global search: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     /**
      * Get query history for media file
      */
@@ -69,4 +93,19 @@ public class QueryController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    /**
+     * Keyword search across the library (or one media file), e.g. "laptop", "harry pott*", "cup OR mug"
+     */
+    @GetMapping("/keywords")
+    public ResponseEntity<List<KeywordSearchResult>> searchKeywords(
+            @RequestParam("q") String query,
+            @RequestParam(required = false) Long mediaFileId) {
+        try {
+            return ResponseEntity.ok(queryService.searchKeywords(query, mediaFileId));
+        } catch (Exception e) {
+            log.error("Error searching keywords", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 }
@@ -0,0 +1,18 @@
+package com.ithra.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per-upload analysis settings; null fields fall back to the application defaults
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AnalysisOptions {
+    private DecodeStrategy decodeStrategy;
+    private VisionFeatureProfile featureProfile;
+}
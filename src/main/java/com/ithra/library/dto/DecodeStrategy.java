@@ -0,0 +1,15 @@
+package com.ithra.library.dto;
+
+/**
+ * How sampled frames are pulled out of an uploaded video
+ */
+public enum DecodeStrategy {
+    /** Decode every frame and keep the sampled ones; exact but the most CPU */
+    SEQUENTIAL,
+    /** Seek to each sample point; only the frames between a keyframe and the target are decoded */
+    SEEK,
+    /** Let the decoder skip all non-keyframes; cheapest, suited to coarse sampling intervals */
+    KEYFRAMES,
+    /** Split the video into time ranges decoded concurrently, each with its own grabber */
+    PARALLEL_SEGMENTS
+}
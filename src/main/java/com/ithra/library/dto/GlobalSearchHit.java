@@ -0,0 +1,26 @@
+package com.ithra.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One line of a global search result stream
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GlobalSearchHit {
+    private String type;
+    private Long id;
+    private Long mediaFileId;
+    private String description;
+    private Double confidence;
+    private Integer frameNumber;
+    private Double timestamp;
+    private LocalDateTime detectedAt;
+}
@@ -0,0 +1,59 @@
+package com.ithra.library.dto;
+
+import com.ithra.library.entity.DetectedPerson;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Search over the detections of all media files, e.g. children seen between 15:00 and 17:00
+ * last week. Results are ordered by (detectedAt, id); to fetch the next page pass the
+ * detectedAt and id of the last result as afterDetectedAt / afterId.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GlobalSearchRequest {
+
+    public enum DetectionType {
+        PERSON, OBJECT, BOOK
+    }
+
+    @Builder.Default
+    private DetectionType type = DetectionType.PERSON;
+
+    // Optional restriction to one media file
+    private Long mediaFileId;
+
+    // Person filters
+    private DetectedPerson.AgeCategory ageCategory;
+    private DetectedPerson.Gender gender;
+    private DetectedPerson.EmotionalState emotionalState;
+
+    // Object filters (case-insensitive, name matches substrings)
+    private String objectName;
+    private String category;
+
+    // Book filter on title or author (case-insensitive substring)
+    private String text;
+
+    private Double minConfidence;
+
+    // Detection time window [from, to)
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    // Hour of day window [fromHour, toHour), wraps past midnight when fromHour > toHour
+    private Integer fromHour;
+    private Integer toHour;
+
+    // Keyset cursor: last result of the previous page
+    private LocalDateTime afterDetectedAt;
+    private Long afterId;
+
+    private Integer limit;
+}
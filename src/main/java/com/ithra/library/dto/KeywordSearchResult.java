@@ -0,0 +1,22 @@
+package com.ithra.library.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Keyword matches within one media file
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class KeywordSearchResult {
+    private Long mediaFileId;
+    private String fileName;
+    private Integer objectMatches;
+    private Integer bookMatches;
+    private Double firstSeen;
+    private Double lastSeen;
+}
@@ -16,4 +16,7 @@ public class StreamConfig {
     private Integer bitrate;
     private Boolean enableAnalysis;
     private Integer analysisInterval; // frames
+    private Integer minAnalysisInterval; // frames, used while the scene is busy
+    private Integer maxAnalysisInterval; // frames, used while the scene is static
+    private VisionFeatureProfile featureProfile; // null = app.vision.feature-profile
 }
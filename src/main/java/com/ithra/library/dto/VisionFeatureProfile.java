@@ -0,0 +1,17 @@
+package com.ithra.library.dto;
+
+/**
+ * Named sets of Vision features requested per frame; fewer features mean lower latency and cost
+ */
+public enum VisionFeatureProfile {
+    /** Faces and localized objects only, for people counting */
+    OCCUPANCY,
+    /** Localized objects and OCR, for book recognition */
+    BOOKS,
+    /** Every feature the detectors read: faces, objects, labels and OCR */
+    STANDARD,
+    /** All features including logos, landmarks and image properties */
+    FULL,
+    /** Faces, objects and labels; OCR is requested in a second call only when a book-like object is localized */
+    ADAPTIVE
+}
@@ -10,7 +10,9 @@ import java.time.LocalDateTime;
 @Table(name = "detected_books", indexes = {
         @Index(name = "idx_media_file", columnList = "media_file_id"),
         @Index(name = "idx_isbn", columnList = "isbn"),
-        @Index(name = "idx_book_name", columnList = "bookName")
+        @Index(name = "idx_book_name", columnList = "bookName"),
+        @Index(name = "idx_books_media_timestamp", columnList = "media_file_id, timestamp"),
+        @Index(name = "idx_books_detected_at", columnList = "detectedAt, id")
 })
 @Data
 @NoArgsConstructor
@@ -18,7 +20,9 @@ import java.time.LocalDateTime;
 @Builder
 public class DetectedBook {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "detected_books_seq")
+    @SequenceGenerator(name = "detected_books_seq", sequenceName = "detected_books_seq",
+            allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -13,7 +13,9 @@ import java.time.LocalDateTime;
 @Table(name = "detected_objects", indexes = {
         @Index(name = "idx_media_file", columnList = "media_file_id"),
         @Index(name = "idx_object_name", columnList = "objectName"),
-        @Index(name = "idx_category", columnList = "category")
+        @Index(name = "idx_category", columnList = "category"),
+        @Index(name = "idx_objects_media_timestamp", columnList = "media_file_id, timestamp"),
+        @Index(name = "idx_objects_detected_at", columnList = "detectedAt, id")
 })
 @Data
 @NoArgsConstructor
@@ -21,7 +23,9 @@ import java.time.LocalDateTime;
 @Builder
 public class DetectedObject {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "detected_objects_seq")
+    @SequenceGenerator(name = "detected_objects_seq", sequenceName = "detected_objects_seq",
+            allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -13,7 +13,9 @@ import java.time.LocalDateTime;
 @Table(name = "detected_persons", indexes = {
         @Index(name = "idx_media_file", columnList = "media_file_id"),
         @Index(name = "idx_unique_id", columnList = "uniqueId"),
-        @Index(name = "idx_timestamp", columnList = "timestamp")
+        @Index(name = "idx_timestamp", columnList = "timestamp"),
+        @Index(name = "idx_persons_media_timestamp", columnList = "media_file_id, timestamp"),
+        @Index(name = "idx_persons_detected_at", columnList = "detectedAt, id")
 })
 @Data
 @NoArgsConstructor
@@ -21,7 +23,9 @@ import java.time.LocalDateTime;
 @Builder
 public class DetectedPerson {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "detected_persons_seq")
+    @SequenceGenerator(name = "detected_persons_seq", sequenceName = "detected_persons_seq",
+            allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
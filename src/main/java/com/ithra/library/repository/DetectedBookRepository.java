@@ -27,6 +27,12 @@ public interface DetectedBookRepository extends JpaRepository<DetectedBook, Long
             "OR LOWER(b.author) LIKE LOWER(CONCAT('%', :keyword, '%')))")
     List<DetectedBook> searchByKeyword(String keyword, Long mediaFileId);
 
+    @Query("SELECT b FROM DetectedBook b WHERE b.mediaFile.id = :mediaFileId " +
+            "AND b.timestamp BETWEEN :startTime AND :endTime")
+    List<DetectedBook> findByMediaFileIdAndTimestampBetween(Long mediaFileId,
+                                                            Double startTime,
+                                                            Double endTime);
+
     @Query("SELECT COUNT(b) FROM DetectedBook b WHERE b.mediaFile.id = :mediaFileId")
     Long countByMediaFileId(Long mediaFileId);
 }
@@ -2,8 +2,10 @@ package com.ithra.library.repository;
 
 import com.ithra.library.entity.DetectedPerson;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -30,4 +32,11 @@ public interface DetectedPersonRepository extends JpaRepository<DetectedPerson,
     @Query("SELECT COUNT(DISTINCT p.uniqueId) FROM DetectedPerson p " +
             "WHERE p.mediaFile.id = :mediaFileId")
     Long countUniquePersonsByMediaFileId(Long mediaFileId);
+
+    List<DetectedPerson> findByAiDescription(String aiDescription);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE DetectedPerson p SET p.aiDescription = :description WHERE p.id IN :ids")
+    int updateAiDescription(List<Long> ids, String description);
 }
@@ -4,8 +4,10 @@ import com.ithra.library.entity.MediaFile;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -31,4 +33,9 @@ public interface MediaFileRepository extends JpaRepository<MediaFile, Long> {
 
     @Query("SELECT m FROM MediaFile m ORDER BY m.uploadDate DESC")
     List<MediaFile> findRecentMediaFiles(Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE MediaFile m SET m.totalFramesProcessed = :totalFrames WHERE m.id = :id")
+    int updateTotalFramesProcessed(Long id, Integer totalFrames);
 }
@@ -0,0 +1,77 @@
+package com.ithra.library.service;
+
+/**
+ * Decides which frames of a video or stream are sampled for analysis.
+ * The sampling interval shrinks towards {@code minInterval} while the scene is
+ * busy and grows towards {@code maxInterval} while it is static, based on the
+ * dHash distance reported by {@link FrameChangeGate}.
+ * Not thread-safe: create one sampler per video or live stream.
+ */
+public class AdaptiveFrameSampler {
+
+    private final int minInterval;
+    private final int maxInterval;
+    private final int staticDistance;
+    private final int activeDistance;
+
+    private int interval;
+    private int lastSampledFrame;
+    private boolean hasSampled;
+
+    /**
+     * @param initialInterval interval used until the first activity score arrives
+     * @param minInterval     floor used for busy scenes
+     * @param maxInterval     ceiling used for static scenes; equal to minInterval disables adaptation
+     * @param staticDistance  distance at or below which the scene counts as static
+     * @param activeDistance  distance at or above which the scene counts as busy
+     */
+    public AdaptiveFrameSampler(int initialInterval, int minInterval, int maxInterval,
+                                int staticDistance, int activeDistance) {
+        this.minInterval = Math.max(1, minInterval);
+        this.maxInterval = Math.max(this.minInterval, maxInterval);
+        this.staticDistance = staticDistance;
+        this.activeDistance = activeDistance;
+        this.interval = Math.min(this.maxInterval, Math.max(this.minInterval, initialInterval));
+    }
+
+    /**
+     * Sampler with a fixed interval
+     */
+    public static AdaptiveFrameSampler fixed(int interval) {
+        return new AdaptiveFrameSampler(interval, interval, interval, -1, Integer.MAX_VALUE);
+    }
+
+    public boolean shouldSample(int frameNumber) {
+        return shouldSample(frameNumber, 1);
+    }
+
+    /**
+     * Returns true if the frame is due, with the current interval stretched by {@code multiplier}
+     */
+    public boolean shouldSample(int frameNumber, int multiplier) {
+        if (hasSampled && frameNumber - lastSampledFrame < interval * Math.max(1, multiplier)) {
+            return false;
+        }
+        hasSampled = true;
+        lastSampledFrame = frameNumber;
+        return true;
+    }
+
+    /**
+     * Feed the activity score of the last sampled frame; negative scores are ignored
+     */
+    public void record(int distance) {
+        if (distance < 0) {
+            return;
+        }
+        if (distance >= activeDistance) {
+            interval = Math.max(minInterval, interval / 2);
+        } else if (distance <= staticDistance) {
+            interval = Math.min(maxInterval, interval + Math.max(1, interval / 2));
+        }
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+}
@@ -0,0 +1,44 @@
+package com.ithra.library.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of concurrent calls to one external dependency.
+ * With virtual threads the thread count no longer bounds outgoing calls,
+ * so every Vision/OpenAI call goes through one of these.
+ */
+@Slf4j
+public class CallLimiter {
+
+    private final String name;
+    private final Semaphore permits;
+
+    public CallLimiter(String name, int maxConcurrentCalls) {
+        this.name = name;
+        this.permits = new Semaphore(Math.max(1, maxConcurrentCalls), true);
+    }
+
+    /**
+     * Run the call once a permit is available
+     */
+    public <T> T call(Supplier<T> call) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + name, e);
+        }
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+}
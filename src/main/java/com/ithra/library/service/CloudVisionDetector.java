@@ -0,0 +1,28 @@
+package com.ithra.library.service;
+
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+import com.google.cloud.vision.v1.ImageAnnotatorClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Google Cloud Vision backend (default)
+ */
+@Component
+@ConditionalOnProperty(name = "app.vision.backend", havingValue = "cloud", matchIfMissing = true)
+public class CloudVisionDetector implements VisionDetector {
+
+    private final ImageAnnotatorClient visionClient;
+
+    public CloudVisionDetector(ImageAnnotatorClient visionClient) {
+        this.visionClient = visionClient;
+    }
+
+    @Override
+    public List<AnnotateImageResponse> annotate(List<AnnotateImageRequest> requests) {
+        return visionClient.batchAnnotateImages(requests).getResponsesList();
+    }
+}
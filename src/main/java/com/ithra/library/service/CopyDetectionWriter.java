@@ -0,0 +1,272 @@
+package com.ithra.library.service;
+
+import com.ithra.library.entity.DetectedBook;
+import com.ithra.library.entity.DetectedObject;
+import com.ithra.library.entity.DetectedPerson;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Bulk writer that streams detection rows into PostgreSQL with COPY ... FROM STDIN (CSV),
+ * bypassing the persistence context entirely.
+ * Ids are taken from the same pooled sequences Hibernate uses, so both writers can be mixed.
+ * The rows join the current Spring transaction when there is one (one commit per
+ * media file for uploads); otherwise each call commits on its own.
+ */
+@Component
+@Slf4j
+public class CopyDetectionWriter {
+
+    /** Must match allocationSize of the detection entities' sequence generators */
+    static final int SEQUENCE_INCREMENT = 50;
+
+    private static final String PERSON_COPY = "COPY detected_persons (id, media_file_id, unique_id, " +
+            "age_category, estimated_age, gender, confidence, emotional_state, frame_number, timestamp, " +
+            "facial_landmarks, bounding_boxx, bounding_boxy, bounding_box_width, bounding_box_height, " +
+            "ai_description, detected_at) FROM STDIN WITH (FORMAT csv)";
+
+    private static final String OBJECT_COPY = "COPY detected_objects (id, media_file_id, object_name, " +
+            "category, confidence, frame_number, timestamp, bounding_boxx, bounding_boxy, " +
+            "bounding_box_width, bounding_box_height, ai_description, detected_at) " +
+            "FROM STDIN WITH (FORMAT csv)";
+
+    private static final String BOOK_COPY = "COPY detected_books (id, media_file_id, book_name, author, " +
+            "isbn, publisher, publication_year, unique_id, confidence, frame_number, timestamp, " +
+            "extracted_text, ai_summary, detected_at) FROM STDIN WITH (FORMAT csv)";
+
+    private final DataSource dataSource;
+
+    public CopyDetectionWriter(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Copy the given detections of one media file; ids and detection times are set on the entities
+     */
+    public void write(Long mediaFileId,
+                      List<DetectedPerson> people,
+                      List<DetectedObject> objects,
+                      List<DetectedBook> books) {
+        if (people.isEmpty() && objects.isEmpty() && books.isEmpty()) {
+            return;
+        }
+
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        boolean transactional = DataSourceUtils.isConnectionTransactional(con, dataSource);
+        try {
+            boolean autoCommit = con.getAutoCommit();
+            if (!transactional && autoCommit) {
+                con.setAutoCommit(false);
+            }
+
+            try {
+                CopyManager copyManager = con.unwrap(PGConnection.class).getCopyAPI();
+                LocalDateTime now = LocalDateTime.now();
+
+                copyPeople(con, copyManager, mediaFileId, people, now);
+                copyObjects(con, copyManager, mediaFileId, objects, now);
+                copyBooks(con, copyManager, mediaFileId, books, now);
+
+                if (!transactional) {
+                    con.commit();
+                }
+            } catch (SQLException | IOException | RuntimeException e) {
+                if (!transactional) {
+                    con.rollback();
+                }
+                throw e;
+            } finally {
+                if (!transactional && autoCommit) {
+                    con.setAutoCommit(true);
+                }
+            }
+
+            log.debug("Copied {} people, {} objects, {} books for media file {}",
+                    people.size(), objects.size(), books.size(), mediaFileId);
+
+        } catch (SQLException | IOException e) {
+            throw new RuntimeException("Failed to copy detections for media file " + mediaFileId, e);
+        } finally {
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+    }
+
+    private void copyPeople(Connection con, CopyManager copyManager, Long mediaFileId,
+                            List<DetectedPerson> people, LocalDateTime now)
+            throws SQLException, IOException {
+        if (people.isEmpty()) {
+            return;
+        }
+
+        Deque<Long> ids = allocateIds(con, "detected_persons_seq", people.size());
+        CsvRows rows = new CsvRows();
+        for (DetectedPerson person : people) {
+            person.setId(ids.removeFirst());
+            person.setDetectedAt(now);
+            rows.row(row -> row
+                    .value(person.getId())
+                    .value(mediaFileId)
+                    .text(person.getUniqueId())
+                    .text(person.getAgeCategory())
+                    .value(person.getEstimatedAge())
+                    .text(person.getGender())
+                    .value(person.getConfidence())
+                    .text(person.getEmotionalState())
+                    .value(person.getFrameNumber())
+                    .value(person.getTimestamp())
+                    .text(person.getFacialLandmarks())
+                    .value(person.getBoundingBoxX())
+                    .value(person.getBoundingBoxY())
+                    .value(person.getBoundingBoxWidth())
+                    .value(person.getBoundingBoxHeight())
+                    .text(person.getAiDescription())
+                    .text(person.getDetectedAt()));
+        }
+        copyManager.copyIn(PERSON_COPY, rows.reader());
+    }
+
+    private void copyObjects(Connection con, CopyManager copyManager, Long mediaFileId,
+                             List<DetectedObject> objects, LocalDateTime now)
+            throws SQLException, IOException {
+        if (objects.isEmpty()) {
+            return;
+        }
+
+        Deque<Long> ids = allocateIds(con, "detected_objects_seq", objects.size());
+        CsvRows rows = new CsvRows();
+        for (DetectedObject object : objects) {
+            object.setId(ids.removeFirst());
+            object.setDetectedAt(now);
+            rows.row(row -> row
+                    .value(object.getId())
+                    .value(mediaFileId)
+                    .text(object.getObjectName())
+                    .text(object.getCategory())
+                    .value(object.getConfidence())
+                    .value(object.getFrameNumber())
+                    .value(object.getTimestamp())
+                    .value(object.getBoundingBoxX())
+                    .value(object.getBoundingBoxY())
+                    .value(object.getBoundingBoxWidth())
+                    .value(object.getBoundingBoxHeight())
+                    .text(object.getAiDescription())
+                    .text(object.getDetectedAt()));
+        }
+        copyManager.copyIn(OBJECT_COPY, rows.reader());
+    }
+
+    private void copyBooks(Connection con, CopyManager copyManager, Long mediaFileId,
+                           List<DetectedBook> books, LocalDateTime now)
+            throws SQLException, IOException {
+        if (books.isEmpty()) {
+            return;
+        }
+
+        Deque<Long> ids = allocateIds(con, "detected_books_seq", books.size());
+        CsvRows rows = new CsvRows();
+        for (DetectedBook book : books) {
+            book.setId(ids.removeFirst());
+            book.setDetectedAt(now);
+            rows.row(row -> row
+                    .value(book.getId())
+                    .value(mediaFileId)
+                    .text(book.getBookName())
+                    .text(book.getAuthor())
+                    .text(book.getIsbn())
+                    .text(book.getPublisher())
+                    .text(book.getPublicationYear())
+                    .text(book.getUniqueId())
+                    .value(book.getConfidence())
+                    .value(book.getFrameNumber())
+                    .value(book.getTimestamp())
+                    .text(book.getExtractedText())
+                    .text(book.getAiSummary())
+                    .text(book.getDetectedAt()));
+        }
+        copyManager.copyIn(BOOK_COPY, rows.reader());
+    }
+
+    /**
+     * Reserve ids the way Hibernate's pooled optimizer does: each nextval value v
+     * hands out the block (v - increment, v]. Ids below 1 from a fresh sequence are skipped.
+     */
+    private Deque<Long> allocateIds(Connection con, String sequence, int count) throws SQLException {
+        Deque<Long> ids = new ArrayDeque<>(count + SEQUENCE_INCREMENT);
+
+        try (PreparedStatement ps = con.prepareStatement(
+                "SELECT nextval(?) FROM generate_series(1, ?)")) {
+            while (ids.size() < count) {
+                int blocks = (count - ids.size() + SEQUENCE_INCREMENT - 1) / SEQUENCE_INCREMENT;
+                ps.setString(1, sequence);
+                ps.setInt(2, blocks);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        long hi = rs.getLong(1);
+                        for (long id = Math.max(1, hi - SEQUENCE_INCREMENT + 1); id <= hi; id++) {
+                            ids.addLast(id);
+                        }
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * CSV rows in PostgreSQL COPY format: an unquoted empty field is NULL,
+     * text is always quoted so empty strings stay empty strings.
+     */
+    private static class CsvRows {
+        private final StringBuilder csv = new StringBuilder();
+        private boolean firstField;
+
+        void row(Consumer<CsvRows> fields) {
+            firstField = true;
+            fields.accept(this);
+            csv.append('\n');
+        }
+
+        CsvRows value(Object value) {
+            separator();
+            if (value != null) {
+                csv.append(value);
+            }
+            return this;
+        }
+
+        CsvRows text(Object value) {
+            separator();
+            if (value != null) {
+                csv.append('"').append(value.toString().replace("\"", "\"\"")).append('"');
+            }
+            return this;
+        }
+
+        StringReader reader() {
+            return new StringReader(csv.toString());
+        }
+
+        private void separator() {
+            if (!firstField) {
+                csv.append(',');
+            }
+            firstField = false;
+        }
+    }
+}
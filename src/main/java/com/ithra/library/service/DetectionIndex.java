@@ -0,0 +1,505 @@
+package com.ithra.library.service;
+
+import com.ithra.library.dto.BookInfo;
+import com.ithra.library.dto.ObjectInfo;
+import com.ithra.library.dto.PersonInfo;
+import com.ithra.library.dto.TimeRange;
+import com.ithra.library.entity.DetectedBook;
+import com.ithra.library.entity.DetectedObject;
+import com.ithra.library.entity.DetectedPerson;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable, column-oriented snapshot of the detections of one media file.
+ * Numeric fields are kept in primitive arrays (NaN / {@link #NO_FRAME} for null),
+ * enums as ordinals (-1 for null) and repetitive strings such as object names,
+ * categories and AI descriptions as codes into per-index dictionaries, so queries
+ * can evaluate string predicates once per distinct value instead of once per row.
+ * Object names and categories have dictionaries of their own, lower-cased at build
+ * time, so object predicates only visit those values.
+ * Rows are ordered by timestamp (rows without one last), so time range filters are
+ * resolved by binary search and only the rows inside the window are visited.
+ */
+public final class DetectionIndex {
+
+    public static final int NO_FRAME = Integer.MIN_VALUE;
+
+    private static final DetectedPerson.AgeCategory[] AGES = DetectedPerson.AgeCategory.values();
+    private static final DetectedPerson.EmotionalState[] EMOTIONS = DetectedPerson.EmotionalState.values();
+    private static final DetectedPerson.Gender[] GENDERS = DetectedPerson.Gender.values();
+
+    // Shared dictionary of the other encoded strings
+    private final String[] dictionary;
+    private final String[] objectNameDictionary;
+    private final String[] objectNameLowerCase;
+    private final String[] objectCategoryDictionary;
+    private final String[] objectCategoryLowerCase;
+    private final boolean pendingDescriptions;
+
+    // People
+    private final long[] personIds;
+    private final int[] personUniqueIds;
+    private final byte[] personAges;
+    private final int[] personEstimatedAges;
+    private final byte[] personGenders;
+    private final byte[] personEmotions;
+    private final double[] personConfidences;
+    private final int[] personFrames;
+    private final double[] personTimestamps;
+    private final int[] personDescriptions;
+
+    // Objects
+    private final long[] objectIds;
+    private final int[] objectNames;
+    private final int[] objectCategories;
+    private final double[] objectConfidences;
+    private final int[] objectFrames;
+    private final double[] objectTimestamps;
+    private final int[] objectDescriptions;
+
+    // Books
+    private final long[] bookIds;
+    private final int[] bookNames;
+    private final int[] bookAuthors;
+    private final String[] bookIsbns;
+    private final String[] bookPublishers;
+    private final String[] bookYears;
+    private final int[] bookUniqueIds;
+    private final double[] bookConfidences;
+    private final int[] bookFrames;
+    private final double[] bookTimestamps;
+    private final int[] bookSummaries;
+
+    private DetectionIndex(List<DetectedPerson> people, List<DetectedObject> objects, List<DetectedBook> books) {
+        Dictionary dict = new Dictionary();
+        Dictionary nameDict = new Dictionary();
+        Dictionary categoryDict = new Dictionary();
+        boolean pending = false;
+
+        int n = people.size();
+        personIds = new long[n];
+        personUniqueIds = new int[n];
+        personAges = new byte[n];
+        personEstimatedAges = new int[n];
+        personGenders = new byte[n];
+        personEmotions = new byte[n];
+        personConfidences = new double[n];
+        personFrames = new int[n];
+        personTimestamps = new double[n];
+        personDescriptions = new int[n];
+        for (int i = 0; i < n; i++) {
+            DetectedPerson person = people.get(i);
+            personIds[i] = person.getId();
+            personUniqueIds[i] = dict.encode(person.getUniqueId());
+            personAges[i] = ordinal(person.getAgeCategory());
+            personEstimatedAges[i] = person.getEstimatedAge() != null ? person.getEstimatedAge() : -1;
+            personGenders[i] = ordinal(person.getGender());
+            personEmotions[i] = ordinal(person.getEmotionalState());
+            personConfidences[i] = orNaN(person.getConfidence());
+            personFrames[i] = frame(person.getFrameNumber());
+            personTimestamps[i] = orNaN(person.getTimestamp());
+            personDescriptions[i] = dict.encode(person.getAiDescription());
+            pending |= EntityEnrichmentService.PENDING_DESCRIPTION.equals(person.getAiDescription());
+        }
+
+        n = objects.size();
+        objectIds = new long[n];
+        objectNames = new int[n];
+        objectCategories = new int[n];
+        objectConfidences = new double[n];
+        objectFrames = new int[n];
+        objectTimestamps = new double[n];
+        objectDescriptions = new int[n];
+        for (int i = 0; i < n; i++) {
+            DetectedObject object = objects.get(i);
+            objectIds[i] = object.getId();
+            objectNames[i] = nameDict.encode(object.getObjectName());
+            objectCategories[i] = categoryDict.encode(object.getCategory());
+            objectConfidences[i] = orNaN(object.getConfidence());
+            objectFrames[i] = frame(object.getFrameNumber());
+            objectTimestamps[i] = orNaN(object.getTimestamp());
+            objectDescriptions[i] = dict.encode(object.getAiDescription());
+        }
+
+        n = books.size();
+        bookIds = new long[n];
+        bookNames = new int[n];
+        bookAuthors = new int[n];
+        bookIsbns = new String[n];
+        bookPublishers = new String[n];
+        bookYears = new String[n];
+        bookUniqueIds = new int[n];
+        bookConfidences = new double[n];
+        bookFrames = new int[n];
+        bookTimestamps = new double[n];
+        bookSummaries = new int[n];
+        for (int i = 0; i < n; i++) {
+            DetectedBook book = books.get(i);
+            bookIds[i] = book.getId();
+            bookNames[i] = dict.encode(book.getBookName());
+            bookAuthors[i] = dict.encode(book.getAuthor());
+            bookIsbns[i] = book.getIsbn();
+            bookPublishers[i] = book.getPublisher();
+            bookYears[i] = book.getPublicationYear();
+            bookUniqueIds[i] = dict.encode(book.getUniqueId());
+            bookConfidences[i] = orNaN(book.getConfidence());
+            bookFrames[i] = frame(book.getFrameNumber());
+            bookTimestamps[i] = orNaN(book.getTimestamp());
+            bookSummaries[i] = dict.encode(book.getAiSummary());
+        }
+
+        this.dictionary = dict.values.toArray(new String[0]);
+        this.objectNameDictionary = nameDict.values.toArray(new String[0]);
+        this.objectNameLowerCase = nameDict.lowerCase();
+        this.objectCategoryDictionary = categoryDict.values.toArray(new String[0]);
+        this.objectCategoryLowerCase = categoryDict.lowerCase();
+        this.pendingDescriptions = pending;
+    }
+
+    public static DetectionIndex of(List<DetectedPerson> people,
+                                    List<DetectedObject> objects,
+                                    List<DetectedBook> books) {
+        return new DetectionIndex(
+                byTimestamp(people, DetectedPerson::getTimestamp),
+                byTimestamp(objects, DetectedObject::getTimestamp),
+                byTimestamp(books, DetectedBook::getTimestamp));
+    }
+
+    /**
+     * Rows inside the time range, plus the rows without a timestamp, which always pass
+     */
+    public int[] personRows(TimeRange timeRange) {
+        return rows(personTimestamps, timeRange);
+    }
+
+    public int[] objectRows(TimeRange timeRange) {
+        return rows(objectTimestamps, timeRange);
+    }
+
+    public int[] bookRows(TimeRange timeRange) {
+        return rows(bookTimestamps, timeRange);
+    }
+
+    /**
+     * True while some people still wait for their AI description
+     */
+    public boolean hasPendingDescriptions() {
+        return pendingDescriptions;
+    }
+
+    // Dictionary
+
+    public int dictionarySize() {
+        return dictionary.length;
+    }
+
+    /**
+     * String for a dictionary code, or null for -1
+     */
+    public String string(int code) {
+        return code < 0 ? null : dictionary[code];
+    }
+
+    /**
+     * Distinct object names; codes of {@link #objectName(int)} are in [0, size)
+     */
+    public int objectNameDictionarySize() {
+        return objectNameDictionary.length;
+    }
+
+    public String objectNameString(int code) {
+        return code < 0 ? null : objectNameDictionary[code];
+    }
+
+    public String objectNameLowerCase(int code) {
+        return code < 0 ? null : objectNameLowerCase[code];
+    }
+
+    /**
+     * Distinct object categories; codes of {@link #objectCategory(int)} are in [0, size)
+     */
+    public int objectCategoryDictionarySize() {
+        return objectCategoryDictionary.length;
+    }
+
+    public String objectCategoryString(int code) {
+        return code < 0 ? null : objectCategoryDictionary[code];
+    }
+
+    public String objectCategoryLowerCase(int code) {
+        return code < 0 ? null : objectCategoryLowerCase[code];
+    }
+
+    // People columns
+
+    public int personCount() {
+        return personIds.length;
+    }
+
+    public DetectedPerson.AgeCategory personAge(int row) {
+        return personAges[row] < 0 ? null : AGES[personAges[row]];
+    }
+
+    public DetectedPerson.EmotionalState personEmotion(int row) {
+        return personEmotions[row] < 0 ? null : EMOTIONS[personEmotions[row]];
+    }
+
+    public double personTimestamp(int row) {
+        return personTimestamps[row];
+    }
+
+    public double personConfidence(int row) {
+        return personConfidences[row];
+    }
+
+    public int personFrame(int row) {
+        return personFrames[row];
+    }
+
+    public int personDescription(int row) {
+        return personDescriptions[row];
+    }
+
+    // Object columns
+
+    public int objectCount() {
+        return objectIds.length;
+    }
+
+    public int objectName(int row) {
+        return objectNames[row];
+    }
+
+    public int objectCategory(int row) {
+        return objectCategories[row];
+    }
+
+    public double objectTimestamp(int row) {
+        return objectTimestamps[row];
+    }
+
+    public double objectConfidence(int row) {
+        return objectConfidences[row];
+    }
+
+    public int objectFrame(int row) {
+        return objectFrames[row];
+    }
+
+    public int objectDescription(int row) {
+        return objectDescriptions[row];
+    }
+
+    // Book columns
+
+    public int bookCount() {
+        return bookIds.length;
+    }
+
+    public int bookName(int row) {
+        return bookNames[row];
+    }
+
+    public int bookAuthor(int row) {
+        return bookAuthors[row];
+    }
+
+    public double bookTimestamp(int row) {
+        return bookTimestamps[row];
+    }
+
+    public double bookConfidence(int row) {
+        return bookConfidences[row];
+    }
+
+    public int bookFrame(int row) {
+        return bookFrames[row];
+    }
+
+    public int bookSummary(int row) {
+        return bookSummaries[row];
+    }
+
+    // Row views, materialized per element on access
+
+    public List<PersonInfo> people() {
+        return new AbstractList<>() {
+            @Override
+            public PersonInfo get(int row) {
+                return PersonInfo.builder()
+                        .id(personIds[row])
+                        .uniqueId(string(personUniqueIds[row]))
+                        .ageCategory(name(personAge(row)))
+                        .estimatedAge(personEstimatedAges[row] >= 0 ? personEstimatedAges[row] : null)
+                        .gender(personGenders[row] < 0 ? null : GENDERS[personGenders[row]].name())
+                        .confidence(boxed(personConfidences[row]))
+                        .emotionalState(name(personEmotion(row)))
+                        .frameNumber(boxed(personFrames[row]))
+                        .timestamp(boxed(personTimestamps[row]))
+                        .aiDescription(string(personDescriptions[row]))
+                        .build();
+            }
+
+            @Override
+            public int size() {
+                return personCount();
+            }
+        };
+    }
+
+    public List<ObjectInfo> objects() {
+        return new AbstractList<>() {
+            @Override
+            public ObjectInfo get(int row) {
+                return ObjectInfo.builder()
+                        .id(objectIds[row])
+                        .objectName(objectNameString(objectNames[row]))
+                        .category(objectCategoryString(objectCategories[row]))
+                        .confidence(boxed(objectConfidences[row]))
+                        .frameNumber(boxed(objectFrames[row]))
+                        .timestamp(boxed(objectTimestamps[row]))
+                        .aiDescription(string(objectDescriptions[row]))
+                        .build();
+            }
+
+            @Override
+            public int size() {
+                return objectCount();
+            }
+        };
+    }
+
+    public List<BookInfo> books() {
+        return new AbstractList<>() {
+            @Override
+            public BookInfo get(int row) {
+                return BookInfo.builder()
+                        .id(bookIds[row])
+                        .bookName(string(bookNames[row]))
+                        .author(string(bookAuthors[row]))
+                        .isbn(bookIsbns[row])
+                        .publisher(bookPublishers[row])
+                        .publicationYear(bookYears[row])
+                        .uniqueId(string(bookUniqueIds[row]))
+                        .confidence(boxed(bookConfidences[row]))
+                        .frameNumber(boxed(bookFrames[row]))
+                        .timestamp(boxed(bookTimestamps[row]))
+                        .aiSummary(string(bookSummaries[row]))
+                        .build();
+            }
+
+            @Override
+            public int size() {
+                return bookCount();
+            }
+        };
+    }
+
+    public static Double boxed(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    public static Integer boxed(int frame) {
+        return frame == NO_FRAME ? null : frame;
+    }
+
+    private static <T> List<T> byTimestamp(List<T> rows, Function<T, Double> timestamp) {
+        List<T> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(timestamp, Comparator.nullsLast(Comparator.naturalOrder())));
+        return sorted;
+    }
+
+    private static int[] rows(double[] timestamps, TimeRange timeRange) {
+        int n = timestamps.length;
+        if (timeRange == null) {
+            return IntStream.range(0, n).toArray();
+        }
+
+        // NaN sorts after every number, so untimed rows form the tail
+        int untimed = lowerBound(timestamps, Double.NaN);
+        int from = timeRange.getStartTime() != null
+                ? Math.min(lowerBound(timestamps, timeRange.getStartTime()), untimed) : 0;
+        int to = timeRange.getEndTime() != null
+                ? Math.min(upperBound(timestamps, timeRange.getEndTime()), untimed) : untimed;
+
+        return IntStream.concat(IntStream.range(from, Math.max(from, to)), IntStream.range(untimed, n))
+                .toArray();
+    }
+
+    /**
+     * First row whose timestamp is not below the key
+     */
+    private static int lowerBound(double[] timestamps, double key) {
+        int low = 0;
+        int high = timestamps.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Double.compare(timestamps[mid], key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First row whose timestamp is above the key
+     */
+    private static int upperBound(double[] timestamps, double key) {
+        int low = 0;
+        int high = timestamps.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Double.compare(timestamps[mid], key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static double orNaN(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    private static int frame(Integer frameNumber) {
+        return frameNumber != null ? frameNumber : NO_FRAME;
+    }
+
+    private static byte ordinal(Enum<?> value) {
+        return value != null ? (byte) value.ordinal() : -1;
+    }
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    private static class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return codes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        String[] lowerCase() {
+            return values.stream().map(String::toLowerCase).toArray(String[]::new);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.ithra.library.service;
+
+import com.ithra.library.dto.TimeRange;
+import com.ithra.library.entity.MediaFile;
+import com.ithra.library.repository.DetectedBookRepository;
+import com.ithra.library.repository.DetectedObjectRepository;
+import com.ithra.library.repository.DetectedPersonRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds and caches {@link DetectionIndex}es per media file.
+ * An index is built with one query per detection table and kept in a bounded LRU once
+ * the media file is completed and all AI descriptions are filled in; until then every
+ * call builds a fresh index. {@link DetectionWriter} invalidates an index when new
+ * detections are saved for its media file.
+ * <p>
+ * Queries with a bounded time range on a media file that is still processing load only
+ * that window, as a range scan over the {@code (media_file_id, timestamp)} indexes.
+ */
+@Service
+@Slf4j
+public class DetectionIndexService {
+
+    private final DetectedPersonRepository personRepository;
+    private final DetectedObjectRepository objectRepository;
+    private final DetectedBookRepository bookRepository;
+    private final Map<Long, DetectionIndex> indexes;
+
+    public DetectionIndexService(DetectedPersonRepository personRepository,
+                                 DetectedObjectRepository objectRepository,
+                                 DetectedBookRepository bookRepository,
+                                 @Value("${app.query.index.max-entries:64}") int maxEntries) {
+        this.personRepository = personRepository;
+        this.objectRepository = objectRepository;
+        this.bookRepository = bookRepository;
+        this.indexes = Collections.synchronizedMap(
+                new LinkedHashMap<Long, DetectionIndex>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Long, DetectionIndex> eldest) {
+                        return size() > maxEntries;
+                    }
+                });
+    }
+
+    /**
+     * Index of the media file's detections, from the cache when possible
+     */
+    public DetectionIndex get(MediaFile mediaFile) {
+        DetectionIndex index = indexes.get(mediaFile.getId());
+        if (index != null) {
+            return index;
+        }
+
+        long start = System.nanoTime();
+        index = DetectionIndex.of(
+                personRepository.findByMediaFileId(mediaFile.getId()),
+                objectRepository.findByMediaFileId(mediaFile.getId()),
+                bookRepository.findByMediaFileId(mediaFile.getId()));
+        log.debug("Built detection index for media file {} ({} people, {} objects, {} books) in {} ms",
+                mediaFile.getId(), index.personCount(), index.objectCount(), index.bookCount(),
+                (System.nanoTime() - start) / 1_000_000);
+
+        if (mediaFile.getStatus() == MediaFile.ProcessingStatus.COMPLETED && !index.hasPendingDescriptions()) {
+            indexes.put(mediaFile.getId(), index);
+        }
+        return index;
+    }
+
+    /**
+     * Index covering at least the time range. Cached and completed media files use the
+     * full index; otherwise a bounded range loads only the detections inside it.
+     * Detections without a timestamp are not part of a windowed index.
+     */
+    public DetectionIndex get(MediaFile mediaFile, TimeRange timeRange) {
+        if (timeRange == null || timeRange.getStartTime() == null || timeRange.getEndTime() == null
+                || mediaFile.getStatus() == MediaFile.ProcessingStatus.COMPLETED
+                || indexes.containsKey(mediaFile.getId())) {
+            return get(mediaFile);
+        }
+
+        long start = System.nanoTime();
+        Long id = mediaFile.getId();
+        DetectionIndex index = DetectionIndex.of(
+                personRepository.findByMediaFileIdAndTimestampBetween(id, timeRange.getStartTime(), timeRange.getEndTime()),
+                objectRepository.findByMediaFileIdAndTimestampBetween(id, timeRange.getStartTime(), timeRange.getEndTime()),
+                bookRepository.findByMediaFileIdAndTimestampBetween(id, timeRange.getStartTime(), timeRange.getEndTime()));
+        log.debug("Built windowed detection index for media file {} [{}, {}] in {} ms",
+                id, timeRange.getStartTime(), timeRange.getEndTime(), (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    public void invalidate(Long mediaFileId) {
+        indexes.remove(mediaFileId);
+    }
+}
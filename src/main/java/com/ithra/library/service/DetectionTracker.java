@@ -0,0 +1,260 @@
+package com.ithra.library.service;
+
+import com.ithra.library.dto.BookInfo;
+import com.ithra.library.dto.BoundingBox;
+import com.ithra.library.dto.FrameAnalysisResult;
+import com.ithra.library.dto.PersonInfo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Assigns stable ids to detections across the frames of one video or live stream.
+ * People are tracked SORT-style: each track predicts its box with a constant-velocity
+ * Kalman filter and detections are matched to the predictions by IoU (greedy, best
+ * overlap first). Tracks age by missed samples rather than seconds, since the adaptive
+ * sampler may leave several seconds between analyzed frames of a static scene.
+ * Books carry no box, so they are matched by ISBN or title.
+ * Frames should be passed in timestamp order; late frames are matched without prediction.
+ * One instance per video or live stream.
+ */
+public class DetectionTracker {
+
+    // Kalman noise: process noise on acceleration (px^2/s^3) and measurement noise (px^2)
+    private static final double PROCESS_NOISE = 400.0;
+    private static final double MEASUREMENT_NOISE = 25.0;
+    private static final int MAX_BOOK_IDS = 1024;
+
+    private final boolean enabled;
+    private final double iouThreshold;
+    private final int maxMissedFrames;
+    private final List<Track> tracks = new ArrayList<>();
+    private final Map<String, String> bookIds = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_BOOK_IDS;
+        }
+    };
+
+    /**
+     * @param enabled       when false detections keep the ids they were created with
+     * @param iouThreshold  minimum overlap between a predicted track box and a detection to match
+     * @param maxMissedFrames tracks not matched in more than this many consecutive analyzed
+     *                        frames are dropped
+     */
+    public DetectionTracker(boolean enabled, double iouThreshold, int maxMissedFrames) {
+        this.enabled = enabled;
+        this.iouThreshold = iouThreshold;
+        this.maxMissedFrames = maxMissedFrames;
+    }
+
+    /**
+     * Replace the unique ids of the frame's people and books with their track ids
+     */
+    public synchronized FrameAnalysisResult assign(FrameAnalysisResult result) {
+        if (!enabled || result == null) {
+            return result;
+        }
+        double time = result.getTimestamp() != null ? result.getTimestamp() : 0.0;
+
+        assignPeople(result.getPeople(), time);
+        assignBooks(result.getBooks());
+        return result;
+    }
+
+    public synchronized int getActiveTracks() {
+        return tracks.size();
+    }
+
+    private void assignPeople(List<PersonInfo> people, double time) {
+        tracks.forEach(track -> track.predict(time));
+        if (people == null || people.isEmpty()) {
+            age(new boolean[tracks.size()]);
+            return;
+        }
+
+        // Candidate pairs above the threshold, best overlap first
+        List<Match> candidates = new ArrayList<>();
+        for (int d = 0; d < people.size(); d++) {
+            BoundingBox box = people.get(d).getBoundingBox();
+            if (box == null) {
+                continue;
+            }
+            for (int t = 0; t < tracks.size(); t++) {
+                double iou = iou(tracks.get(t).box(), box);
+                if (iou >= iouThreshold) {
+                    candidates.add(new Match(t, d, iou));
+                }
+            }
+        }
+        candidates.sort(Comparator.comparingDouble(Match::iou).reversed());
+
+        boolean[] trackUsed = new boolean[tracks.size()];
+        boolean[] detectionUsed = new boolean[people.size()];
+        for (Match match : candidates) {
+            if (trackUsed[match.track()] || detectionUsed[match.detection()]) {
+                continue;
+            }
+            trackUsed[match.track()] = true;
+            detectionUsed[match.detection()] = true;
+
+            Track track = tracks.get(match.track());
+            PersonInfo person = people.get(match.detection());
+            track.update(person.getBoundingBox(), time);
+            person.setUniqueId(track.id);
+        }
+        age(trackUsed);
+
+        // Unmatched detections start new tracks
+        for (int d = 0; d < people.size(); d++) {
+            if (detectionUsed[d]) {
+                continue;
+            }
+            PersonInfo person = people.get(d);
+            String id = UUID.randomUUID().toString();
+            person.setUniqueId(id);
+            if (person.getBoundingBox() != null) {
+                tracks.add(new Track(id, person.getBoundingBox(), time));
+            }
+        }
+    }
+
+    /**
+     * Count a miss for every track not matched in this frame and drop those missed too often
+     */
+    private void age(boolean[] matched) {
+        for (int t = 0; t < matched.length; t++) {
+            Track track = tracks.get(t);
+            track.missed = matched[t] ? 0 : track.missed + 1;
+        }
+        tracks.removeIf(track -> track.missed > maxMissedFrames);
+    }
+
+    private void assignBooks(List<BookInfo> books) {
+        if (books == null) {
+            return;
+        }
+        for (BookInfo book : books) {
+            String key = bookKey(book);
+            if (key != null) {
+                book.setUniqueId(bookIds.computeIfAbsent(key, k -> UUID.randomUUID().toString()));
+            }
+        }
+    }
+
+    private static String bookKey(BookInfo book) {
+        if (book.getIsbn() != null && !book.getIsbn().isBlank()) {
+            return "isbn:" + book.getIsbn();
+        }
+        if (book.getBookName() != null && !book.getBookName().isBlank()) {
+            return "title:" + book.getBookName().trim().toLowerCase();
+        }
+        return null;
+    }
+
+    static double iou(BoundingBox a, BoundingBox b) {
+        if (a.getWidth() == null || b.getWidth() == null) {
+            return 0.0;
+        }
+        double x1 = Math.max(a.getX(), b.getX());
+        double y1 = Math.max(a.getY(), b.getY());
+        double x2 = Math.min(a.getX() + a.getWidth(), b.getX() + b.getWidth());
+        double y2 = Math.min(a.getY() + a.getHeight(), b.getY() + b.getHeight());
+        double intersection = Math.max(0, x2 - x1) * Math.max(0, y2 - y1);
+        double union = a.getWidth() * a.getHeight() + b.getWidth() * b.getHeight() - intersection;
+        return union > 0 ? intersection / union : 0.0;
+    }
+
+    private record Match(int track, int detection, double iou) {
+    }
+
+    private static class Track {
+        private final String id;
+        // Box centre and size, each with its own constant-velocity filter
+        private final KalmanAxis cx;
+        private final KalmanAxis cy;
+        private final KalmanAxis width;
+        private final KalmanAxis height;
+        private double time;
+        // Consecutive analyzed frames without a matching detection
+        private int missed;
+
+        Track(String id, BoundingBox box, double time) {
+            this.id = id;
+            this.cx = new KalmanAxis(box.getX() + box.getWidth() / 2);
+            this.cy = new KalmanAxis(box.getY() + box.getHeight() / 2);
+            this.width = new KalmanAxis(box.getWidth());
+            this.height = new KalmanAxis(box.getHeight());
+            this.time = time;
+        }
+
+        void predict(double now) {
+            double dt = now - time;
+            if (dt <= 0) {
+                return;
+            }
+            cx.predict(dt);
+            cy.predict(dt);
+            width.predict(dt);
+            height.predict(dt);
+            time = now;
+        }
+
+        void update(BoundingBox box, double now) {
+            cx.update(box.getX() + box.getWidth() / 2);
+            cy.update(box.getY() + box.getHeight() / 2);
+            width.update(box.getWidth());
+            height.update(box.getHeight());
+        }
+
+        BoundingBox box() {
+            double w = Math.max(1.0, width.position);
+            double h = Math.max(1.0, height.position);
+            return BoundingBox.builder()
+                    .x(cx.position - w / 2)
+                    .y(cy.position - h / 2)
+                    .width(w)
+                    .height(h)
+                    .build();
+        }
+    }
+
+    /**
+     * One-dimensional Kalman filter over position and velocity
+     */
+    private static class KalmanAxis {
+        private double position;
+        private double velocity;
+        private double p00 = MEASUREMENT_NOISE;
+        private double p01;
+        private double p11 = 1000.0;
+
+        KalmanAxis(double position) {
+            this.position = position;
+        }
+
+        void predict(double dt) {
+            position += velocity * dt;
+            double dt2 = dt * dt;
+            p00 += 2 * dt * p01 + dt2 * p11 + PROCESS_NOISE * dt2 * dt / 3;
+            p01 += dt * p11 + PROCESS_NOISE * dt2 / 2;
+            p11 += PROCESS_NOISE * dt;
+        }
+
+        void update(double measured) {
+            double s = p00 + MEASUREMENT_NOISE;
+            double k0 = p00 / s;
+            double k1 = p01 / s;
+            double residual = measured - position;
+            position += k0 * residual;
+            velocity += k1 * residual;
+            p11 -= k1 * p01;
+            p01 -= k0 * p01;
+            p00 -= k0 * p00;
+        }
+    }
+}
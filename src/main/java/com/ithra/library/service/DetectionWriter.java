@@ -0,0 +1,108 @@
+package com.ithra.library.service;
+
+import com.ithra.library.dto.FrameAnalysisResult;
+import com.ithra.library.entity.DetectedBook;
+import com.ithra.library.entity.DetectedObject;
+import com.ithra.library.entity.DetectedPerson;
+import com.ithra.library.entity.MediaFile;
+import com.ithra.library.repository.DetectedBookRepository;
+import com.ithra.library.repository.DetectedObjectRepository;
+import com.ithra.library.repository.DetectedPersonRepository;
+import com.ithra.library.repository.MediaFileRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static com.ithra.library.service.LiveStreamingService.*;
+
+/**
+ * Persists the detections of a frame in bulk.
+ * Entities use pooled sequence ids, so saveAll only assigns ids in memory and
+ * the single flush per frame sends the inserts as JDBC batches
+ * (see hibernate.jdbc.batch_size / order_inserts). The rows are detached after the
+ * flush, so a video saved in one transaction does not dirty-check or retain every
+ * earlier frame's entities.
+ * For bulk ingestion the rows can instead be streamed with {@link CopyDetectionWriter}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DetectionWriter {
+
+    private static final String COPY_WRITER = "copy";
+
+    private final MediaFileRepository mediaFileRepository;
+    private final DetectedPersonRepository personRepository;
+    private final DetectedObjectRepository objectRepository;
+    private final DetectedBookRepository bookRepository;
+    private final EntityEnrichmentService enrichmentService;
+    private final CopyDetectionWriter copyWriter;
+    private final DetectionIndexService indexService;
+    private final KeywordIndex keywordIndex;
+
+    @Value("${app.detections.writer:jpa}")
+    private String writer;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Save the detections of one frame against a media file reference, without loading the file
+     */
+    @Transactional
+    public void saveFrame(FrameAnalysisResult result, Long mediaFileId) {
+        saveFrame(result, mediaFileRepository.getReferenceById(mediaFileId));
+    }
+
+    /**
+     * Save all detections of one frame with a single flush, or with COPY when
+     * {@code app.detections.writer=copy}
+     */
+    @Transactional
+    public void saveFrame(FrameAnalysisResult result, MediaFile mediaFile) {
+        List<DetectedPerson> people =
+                convert(result.getPeople(), person -> convertToPersonEntity(person, mediaFile));
+        List<DetectedObject> objects =
+                convert(result.getObjects(), object -> convertToObjectEntity(object, mediaFile));
+        List<DetectedBook> books =
+                convert(result.getBooks(), book -> convertToBookEntity(book, mediaFile));
+
+        if (COPY_WRITER.equals(writer)) {
+            // Pending changes such as a new media file must reach the connection before COPY
+            entityManager.flush();
+            copyWriter.write(mediaFile.getId(), people, objects, books);
+        } else {
+            personRepository.saveAll(people);
+            objectRepository.saveAll(objects);
+            bookRepository.saveAll(books);
+            entityManager.flush();
+            // Detach only this frame's rows; the caller's media file stays managed
+            people.forEach(entityManager::detach);
+            objects.forEach(entityManager::detach);
+            books.forEach(entityManager::detach);
+        }
+
+        log.debug("Saved {} people, {} objects, {} books for frame {}",
+                people.size(), objects.size(), books.size(), result.getFrameNumber());
+
+        indexService.invalidate(mediaFile.getId());
+        keywordIndex.index(objects, books);
+
+        // Descriptions are generated in the background once the rows are committed
+        enrichmentService.enqueue(people);
+    }
+
+    private static <T, E> List<E> convert(List<T> detections, Function<T, E> converter) {
+        if (detections == null) {
+            return List.of();
+        }
+        return detections.stream().map(converter).toList();
+    }
+}
@@ -0,0 +1,119 @@
+package com.ithra.library.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of generated entity descriptions.
+ * Entity data comes from a small fixed domain (age buckets, emotions, gender),
+ * so identical prompts repeat constantly. Entries are persisted to a JSON
+ * snapshot on shutdown and loaded again at startup.
+ */
+@Component
+@Slf4j
+public class EntityDescriptionCache {
+
+    private final ObjectMapper objectMapper;
+    private final int maxEntries;
+    private final Map<String, String> descriptions;
+
+    @Value("${app.openai.description-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.openai.description-cache.snapshot-path:./cache/entity-descriptions.json}")
+    private String snapshotPath;
+
+    public EntityDescriptionCache(ObjectMapper objectMapper,
+                                  @Value("${app.openai.description-cache.max-entries:512}") int maxEntries) {
+        this.objectMapper = objectMapper;
+        this.maxEntries = maxEntries;
+        this.descriptions = Collections.synchronizedMap(
+                new LinkedHashMap<String, String>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                        return size() > maxEntries;
+                    }
+                });
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+
+        Path path = Paths.get(snapshotPath);
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try {
+            Map<String, String> snapshot = objectMapper.readValue(
+                    path.toFile(), new TypeReference<LinkedHashMap<String, String>>() {});
+            descriptions.putAll(snapshot);
+            log.info("Loaded {} entity descriptions from {}", descriptions.size(), path);
+        } catch (IOException e) {
+            log.warn("Could not load entity description snapshot {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void save() {
+        if (!enabled || descriptions.isEmpty()) {
+            return;
+        }
+
+        Path path = Paths.get(snapshotPath);
+        try {
+            Map<String, String> snapshot;
+            synchronized (descriptions) {
+                snapshot = new LinkedHashMap<>(descriptions);
+            }
+
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            // Write to a temp file first so a crash never leaves a truncated snapshot
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            objectMapper.writeValue(temp.toFile(), snapshot);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            log.info("Saved {} entity descriptions to {}", snapshot.size(), path);
+        } catch (IOException e) {
+            log.warn("Could not save entity description snapshot {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Build the cache key from the entity type and its canonical JSON
+     */
+    public String key(String entityType, String canonicalData) {
+        return entityType + ":" + canonicalData;
+    }
+
+    /**
+     * Look up a cached description, or null on a miss
+     */
+    public String get(String key) {
+        return enabled ? descriptions.get(key) : null;
+    }
+
+    public void put(String key, String description) {
+        if (enabled && maxEntries > 0) {
+            descriptions.put(key, description);
+        }
+    }
+}
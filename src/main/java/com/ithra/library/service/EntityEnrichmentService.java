@@ -0,0 +1,206 @@
+package com.ithra.library.service;
+
+import com.ithra.library.entity.DetectedPerson;
+import com.ithra.library.repository.DetectedPersonRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills in AI descriptions for detected people outside the frame analysis path.
+ * Detections are stored with {@link #PENDING_DESCRIPTION}; a background worker
+ * groups pending rows by (age, emotion, gender), asks OpenAI once per group and
+ * updates all rows of the group in a single statement. When a call fails the group is
+ * requeued and the worker backs off exponentially (up to {@code max-backoff-ms}).
+ */
+@Service
+@Slf4j
+public class EntityEnrichmentService {
+
+    public static final String PENDING_DESCRIPTION = "Description pending";
+
+    private final DetectedPersonRepository personRepository;
+    private final OpenAIService openAIService;
+
+    private final Map<PersonKey, Set<Long>> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "EntityEnrichment");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.enrichment.interval-ms:2000}")
+    private long intervalMs;
+
+    @Value("${app.enrichment.max-backoff-ms:60000}")
+    private long maxBackoffMs;
+
+    @Value("${app.processing.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    // Current backoff after failed OpenAI calls, 0 while calls succeed
+    private long backoffMs;
+    private volatile long retryAt;
+
+    public EntityEnrichmentService(DetectedPersonRepository personRepository,
+                                   OpenAIService openAIService) {
+        this.personRepository = personRepository;
+        this.openAIService = openAIService;
+    }
+
+    @PostConstruct
+    public void start() {
+        worker.scheduleWithFixedDelay(this::drain, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Pick up rows left pending by a previous run
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        try {
+            List<DetectedPerson> leftOver = personRepository.findByAiDescription(PENDING_DESCRIPTION);
+            if (!leftOver.isEmpty()) {
+                log.info("Resuming AI enrichment for {} detected people", leftOver.size());
+                add(leftOver);
+            }
+        } catch (Exception e) {
+            log.error("Error loading pending AI descriptions", e);
+        }
+    }
+
+    /**
+     * Queue saved people for description. When called inside a transaction the
+     * rows are queued after commit so the worker never updates uncommitted rows.
+     */
+    public void enqueue(List<DetectedPerson> people) {
+        if (people.isEmpty()) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<DetectedPerson> snapshot = new ArrayList<>(people);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(snapshot);
+                }
+            });
+        } else {
+            add(people);
+        }
+    }
+
+    private void add(List<DetectedPerson> people) {
+        for (DetectedPerson person : people) {
+            if (person.getId() == null || !PENDING_DESCRIPTION.equals(person.getAiDescription())) {
+                continue;
+            }
+            // compute() is atomic with the remove() in drain, so no id is lost in between
+            pending.compute(PersonKey.of(person), (key, ids) -> {
+                Set<Long> group = ids != null ? ids : new HashSet<>();
+                group.add(person.getId());
+                return group;
+            });
+        }
+    }
+
+    private void drain() {
+        if (virtualThreads) {
+            // One virtual thread per group; OpenAI concurrency is capped by its CallLimiter.
+            // close() waits for all groups, so drains never overlap.
+            try (ExecutorService groups = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (PersonKey key : new ArrayList<>(pending.keySet())) {
+                    groups.submit(() -> enrich(key));
+                }
+            }
+        } else {
+            for (PersonKey key : new ArrayList<>(pending.keySet())) {
+                enrich(key);
+            }
+        }
+    }
+
+    private void enrich(PersonKey key) {
+        if (System.currentTimeMillis() < retryAt) {
+            return;
+        }
+        Set<Long> ids = pending.remove(key);
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+
+        try {
+            String description = openAIService.describeEntity("person", key.toEntityData());
+            int updated = personRepository.updateAiDescription(new ArrayList<>(ids), description);
+            log.debug("Enriched {} detected people for {}", updated, key);
+            resetBackoff();
+        } catch (Exception e) {
+            // Keep the rows pending and retry later instead of persisting a fallback text
+            requeue(key, ids);
+            long delay = backOff();
+            log.warn("Failed to enrich {} detected people for {}, retrying in {} ms",
+                    ids.size(), key, delay, e);
+        }
+    }
+
+    private void requeue(PersonKey key, Set<Long> ids) {
+        pending.compute(key, (k, group) -> {
+            Set<Long> merged = group != null ? group : new HashSet<>();
+            merged.addAll(ids);
+            return merged;
+        });
+    }
+
+    private synchronized long backOff() {
+        backoffMs = backoffMs == 0 ? intervalMs : Math.min(backoffMs * 2, maxBackoffMs);
+        retryAt = System.currentTimeMillis() + backoffMs;
+        return backoffMs;
+    }
+
+    private synchronized void resetBackoff() {
+        backoffMs = 0;
+    }
+
+    private record PersonKey(Integer age, String emotion, String gender) {
+
+        static PersonKey of(DetectedPerson person) {
+            return new PersonKey(
+                    person.getEstimatedAge(),
+                    person.getEmotionalState() != null ? person.getEmotionalState().name() : null,
+                    person.getGender() != null ? person.getGender().name() : null
+            );
+        }
+
+        Map<String, Object> toEntityData() {
+            Map<String, Object> personData = new HashMap<>();
+            personData.put("age", age);
+            personData.put("emotion", emotion);
+            personData.put("gender", gender);
+            return personData;
+        }
+    }
+}
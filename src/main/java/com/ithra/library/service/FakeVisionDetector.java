@@ -0,0 +1,117 @@
+package com.ithra.library.service;
+
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+import com.google.cloud.vision.v1.BoundingPoly;
+import com.google.cloud.vision.v1.EntityAnnotation;
+import com.google.cloud.vision.v1.FaceAnnotation;
+import com.google.cloud.vision.v1.Feature;
+import com.google.cloud.vision.v1.Likelihood;
+import com.google.cloud.vision.v1.LocalizedObjectAnnotation;
+import com.google.cloud.vision.v1.Vertex;
+import com.google.protobuf.ByteString;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Deterministic backend for load tests and offline benchmarks.
+ * Annotations are derived from a hash of the image bytes, so the same frame always
+ * yields the same detections; an optional fixed delay simulates backend latency.
+ */
+@Component
+@ConditionalOnProperty(name = "app.vision.backend", havingValue = "fake")
+public class FakeVisionDetector implements VisionDetector {
+
+    private static final String[] OBJECT_NAMES = {"Book", "Chair", "Table", "Laptop", "Coffee cup", "Person"};
+
+    @Value("${app.vision.fake.latency-ms:0}")
+    private long latencyMs;
+
+    @Override
+    public List<AnnotateImageResponse> annotate(List<AnnotateImageRequest> requests) {
+        if (latencyMs > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while simulating vision latency", e);
+            }
+        }
+        return requests.stream().map(this::annotate).collect(Collectors.toList());
+    }
+
+    private AnnotateImageResponse annotate(AnnotateImageRequest request) {
+        Set<Feature.Type> features = request.getFeaturesList().stream()
+                .map(Feature::getType)
+                .collect(Collectors.toSet());
+        Random random = new Random(seed(request.getImage().getContent()));
+        AnnotateImageResponse.Builder response = AnnotateImageResponse.newBuilder();
+
+        if (features.contains(Feature.Type.FACE_DETECTION)) {
+            int faces = random.nextInt(4);
+            for (int i = 0; i < faces; i++) {
+                response.addFaceAnnotations(FaceAnnotation.newBuilder()
+                        .setBoundingPoly(box(random, 40, 200))
+                        .setDetectionConfidence(0.6f + random.nextFloat() * 0.4f)
+                        .setJoyLikelihood(random.nextBoolean() ? Likelihood.LIKELY : Likelihood.UNLIKELY)
+                        .build());
+            }
+        }
+
+        if (features.contains(Feature.Type.OBJECT_LOCALIZATION)) {
+            int objects = random.nextInt(5);
+            for (int i = 0; i < objects; i++) {
+                response.addLocalizedObjectAnnotations(LocalizedObjectAnnotation.newBuilder()
+                        .setName(OBJECT_NAMES[random.nextInt(OBJECT_NAMES.length)])
+                        .setScore(0.5f + random.nextFloat() * 0.5f)
+                        .setBoundingPoly(box(random, 60, 400))
+                        .build());
+            }
+        }
+
+        if (features.contains(Feature.Type.LABEL_DETECTION)) {
+            response.addLabelAnnotations(EntityAnnotation.newBuilder()
+                    .setDescription("Library")
+                    .setScore(0.9f)
+                    .build());
+        }
+
+        // One frame in eight shows a readable book cover
+        if (features.contains(Feature.Type.TEXT_DETECTION) && random.nextInt(8) == 0) {
+            response.addTextAnnotations(EntityAnnotation.newBuilder()
+                    .setDescription("Sample Title\nby Test Author\nISBN 978" + (1000000000L + random.nextInt(999999999)))
+                    .build());
+        }
+
+        return response.build();
+    }
+
+    private static long seed(ByteString content) {
+        // Sample the bytes so large frames stay cheap to hash
+        long hash = content.size();
+        int step = Math.max(1, content.size() / 4096);
+        for (int i = 0; i < content.size(); i += step) {
+            hash = hash * 31 + content.byteAt(i);
+        }
+        return hash;
+    }
+
+    private static BoundingPoly box(Random random, int minSize, int maxSize) {
+        int x = random.nextInt(1000);
+        int y = random.nextInt(500);
+        int size = minSize + random.nextInt(maxSize - minSize);
+        return BoundingPoly.newBuilder()
+                .addVertices(Vertex.newBuilder().setX(x).setY(y))
+                .addVertices(Vertex.newBuilder().setX(x + size).setY(y))
+                .addVertices(Vertex.newBuilder().setX(x + size).setY(y + size))
+                .addVertices(Vertex.newBuilder().setX(x).setY(y + size))
+                .build();
+    }
+}
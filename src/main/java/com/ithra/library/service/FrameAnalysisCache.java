@@ -0,0 +1,139 @@
+package com.ithra.library.service;
+
+import com.google.protobuf.ByteString;
+import com.ithra.library.dto.FrameAnalysisResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content-addressed cache of frame analysis results.
+ * Keys are the SHA-256 of the encoded image plus the Vision feature set, so
+ * re-uploads and reprocessing of identical frames skip the Vision/OpenAI calls.
+ * A bounded in-process LRU tier sits in front of an optional shared Redis tier.
+ */
+@Component
+@Slf4j
+public class FrameAnalysisCache {
+
+    public static final String SHARED_CACHE_NAME = "frameAnalysis";
+
+    private final CacheManager cacheManager;
+    private final Map<String, FrameAnalysisResult> localCache;
+
+    private final Counter localHits;
+    private final Counter sharedHits;
+    private final Counter misses;
+
+    @Value("${app.vision.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.vision.cache.shared-enabled:false}")
+    private boolean sharedEnabled;
+
+    public FrameAnalysisCache(CacheManager cacheManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.vision.cache.max-entries:2048}") int maxEntries) {
+        this.cacheManager = cacheManager;
+        this.localCache = Collections.synchronizedMap(
+                new LinkedHashMap<String, FrameAnalysisResult>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, FrameAnalysisResult> eldest) {
+                        return size() > maxEntries;
+                    }
+                });
+
+        this.localHits = Counter.builder("library.vision.cache.requests")
+                .tag("result", "hit").tag("tier", "local")
+                .register(meterRegistry);
+        this.sharedHits = Counter.builder("library.vision.cache.requests")
+                .tag("result", "hit").tag("tier", "shared")
+                .register(meterRegistry);
+        this.misses = Counter.builder("library.vision.cache.requests")
+                .tag("result", "miss").tag("tier", "none")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Build the cache key for an encoded image analyzed with the given feature set
+     */
+    public String key(ByteString image, String featureSet) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            // Digest the underlying chunks in place rather than flattening to a byte array
+            for (ByteBuffer chunk : image.asReadOnlyByteBufferList()) {
+                digest.update(chunk);
+            }
+            return HexFormat.of().formatHex(digest.digest()) + ":" + featureSet;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Look up a cached result, or null on a miss
+     */
+    public FrameAnalysisResult get(String key) {
+        FrameAnalysisResult result = localCache.get(key);
+        if (result != null) {
+            localHits.increment();
+            return result;
+        }
+
+        result = getShared(key);
+        if (result != null) {
+            sharedHits.increment();
+            localCache.put(key, result);
+            return result;
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    public void put(String key, FrameAnalysisResult result) {
+        localCache.put(key, result);
+
+        Cache shared = sharedCache();
+        if (shared != null) {
+            try {
+                shared.put(key, result);
+            } catch (RuntimeException e) {
+                log.warn("Failed to write frame analysis to shared cache: {}", e.getMessage());
+            }
+        }
+    }
+
+    private FrameAnalysisResult getShared(String key) {
+        Cache shared = sharedCache();
+        if (shared == null) {
+            return null;
+        }
+        try {
+            return shared.get(key, FrameAnalysisResult.class);
+        } catch (RuntimeException e) {
+            log.warn("Failed to read frame analysis from shared cache: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Cache sharedCache() {
+        return sharedEnabled ? cacheManager.getCache(SHARED_CACHE_NAME) : null;
+    }
+}
@@ -0,0 +1,243 @@
+package com.ithra.library.service;
+
+import com.ithra.library.dto.FrameAnalysisResult;
+import com.ithra.library.dto.VisionFeatureProfile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.javacpp.DoublePointer;
+import org.bytedeco.javacpp.PointerScope;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.RectVector;
+import org.bytedeco.opencv.opencv_objdetect.HOGDescriptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMREAD_REDUCED_GRAYSCALE_2;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.imdecode;
+
+/**
+ * Two-stage frame analysis: an in-process HOG person detector runs on every frame and
+ * only frames whose local result changed, is uncertain, or is too old are escalated to
+ * {@link VisionAnalysisService}. Other frames reuse the last escalated analysis.
+ * The local stage runs on the calling thread; callers that queue cloud work (live streams)
+ * pass an {@link Escalation} that schedules the cloud call instead of starting it directly.
+ * Escalation decisions, stage latencies and local/cloud agreement are published as metrics.
+ */
+@Component
+@Slf4j
+public class FrameCascade {
+
+    private final VisionAnalysisService visionService;
+    private final MeterRegistry meterRegistry;
+    private final Timer localLatency;
+    private final Timer cloudLatency;
+    private final Counter agree;
+    private final Counter disagree;
+
+    @Value("${app.cascade.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.cascade.min-weight:0.3}")
+    private double minWeight;
+
+    @Value("${app.cascade.confident-weight:1.0}")
+    private double confidentWeight;
+
+    @Value("${app.cascade.max-skipped-frames:10}")
+    private int maxSkippedFrames;
+
+    public FrameCascade(VisionAnalysisService visionService, MeterRegistry meterRegistry) {
+        this.visionService = visionService;
+        this.meterRegistry = meterRegistry;
+        this.localLatency = Timer.builder("library.cascade.stage.latency")
+                .tag("stage", "local")
+                .register(meterRegistry);
+        this.cloudLatency = Timer.builder("library.cascade.stage.latency")
+                .tag("stage", "cloud")
+                .register(meterRegistry);
+        this.agree = Counter.builder("library.cascade.agreement")
+                .tag("result", "agree")
+                .register(meterRegistry);
+        this.disagree = Counter.builder("library.cascade.agreement")
+                .tag("result", "disagree")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Start a cascade for one video or stream; frames must be passed in order
+     */
+    public Session newSession() {
+        return new Session();
+    }
+
+    private void countDecision(String decision) {
+        meterRegistry.counter("library.cascade.frames", "decision", decision).increment();
+    }
+
+    /**
+     * People seen by the cloud stage: localized "Person" objects, or faces when there are none
+     */
+    private static int cloudPeople(FrameAnalysisResult result) {
+        long persons = result.getObjects().stream()
+                .filter(object -> "person".equalsIgnoreCase(object.getObjectName()))
+                .count();
+        return persons > 0 ? (int) persons : result.getPeople().size();
+    }
+
+    /**
+     * Local detector output: people found with at least {@code minWeight},
+     * and whether any of them scored below {@code confidentWeight}
+     */
+    private record LocalResult(int people, boolean uncertain) {
+    }
+
+    /**
+     * Starts the cloud call of an escalated frame, e.g. directly or through a stream's frame queue.
+     * The returned future must complete, also when the call is dropped.
+     */
+    @FunctionalInterface
+    public interface Escalation {
+        CompletableFuture<FrameAnalysisResult> start(Supplier<CompletableFuture<FrameAnalysisResult>> cloudCall);
+    }
+
+    public class Session implements AutoCloseable {
+        private final HOGDescriptor hog;
+        private LocalResult lastLocal;
+        private CompletableFuture<FrameAnalysisResult> lastAnalysis;
+        private int skippedFrames;
+        private boolean closed;
+
+        private Session() {
+            if (enabled) {
+                hog = new HOGDescriptor();
+                hog.setSVMDetector(new Mat(HOGDescriptor.getDefaultPeopleDetector()));
+            } else {
+                hog = null;
+            }
+        }
+
+        /**
+         * Analyze a frame, escalating to the cloud analyzer only when the local stage asks for it
+         */
+        public CompletableFuture<FrameAnalysisResult> analyze(FrameEncoder.EncodedFrame image,
+                                                              Integer frameNumber,
+                                                              Double timestamp,
+                                                              VisionFeatureProfile profile) {
+            return analyze(image, frameNumber, timestamp, profile, Supplier::get);
+        }
+
+        /**
+         * Run the local stage on the calling thread and start escalated cloud calls through
+         * {@code escalation}; frames must be passed in order
+         */
+        public synchronized CompletableFuture<FrameAnalysisResult> analyze(FrameEncoder.EncodedFrame image,
+                                                                           Integer frameNumber,
+                                                                           Double timestamp,
+                                                                           VisionFeatureProfile profile,
+                                                                           Escalation escalation) {
+            if (hog == null || closed) {
+                return escalation.start(() ->
+                        visionService.analyzeFrameBatched(image, frameNumber, timestamp, profile));
+            }
+
+            LocalResult local = localLatency.record(() -> detectLocally(image.image()));
+            String reason = escalationReason(local);
+            lastLocal = local;
+
+            if (reason == null) {
+                skippedFrames++;
+                countDecision("local");
+                return lastAnalysis.thenApply(result ->
+                        VisionAnalysisService.retarget(result, frameNumber, timestamp));
+            }
+
+            skippedFrames = 0;
+            countDecision(reason);
+            CompletableFuture<FrameAnalysisResult> analysis = escalation.start(() -> {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                return visionService.analyzeFrameBatched(image, frameNumber, timestamp, profile)
+                        .whenComplete((result, error) -> {
+                            sample.stop(cloudLatency);
+                            if (result != null && local != null) {
+                                (cloudPeople(result) == local.people() ? agree : disagree).increment();
+                            }
+                        });
+            });
+            lastAnalysis = analysis;
+            // A failed or dropped escalation must not be reused; the next frame escalates again
+            analysis.whenComplete((result, error) -> {
+                if (error != null) {
+                    forget(analysis);
+                }
+            });
+            return analysis;
+        }
+
+        private synchronized void forget(CompletableFuture<FrameAnalysisResult> analysis) {
+            if (lastAnalysis == analysis) {
+                lastAnalysis = null;
+                lastLocal = null;
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            if (hog != null) {
+                hog.close();
+            }
+        }
+
+        private String escalationReason(LocalResult local) {
+            if (local == null) {
+                return "local-error";
+            }
+            if (lastAnalysis == null) {
+                return "first";
+            }
+            if (lastLocal == null || local.people() != lastLocal.people()) {
+                return "changed";
+            }
+            if (local.uncertain()) {
+                return "low-confidence";
+            }
+            if (skippedFrames >= maxSkippedFrames) {
+                return "refresh";
+            }
+            return null;
+        }
+
+        private LocalResult detectLocally(ByteString image) {
+            // Native matrices and vectors created here are freed with the scope
+            try (PointerScope scope = new PointerScope()) {
+                Mat gray = imdecode(new Mat(image.toByteArray()), IMREAD_REDUCED_GRAYSCALE_2);
+                if (gray.empty()) {
+                    return null;
+                }
+
+                RectVector found = new RectVector();
+                DoublePointer weights = new DoublePointer();
+                hog.detectMultiScale(gray, found, weights);
+
+                int people = 0;
+                boolean uncertain = false;
+                for (int i = 0; i < found.size(); i++) {
+                    double weight = weights.get(i);
+                    if (weight >= minWeight) {
+                        people++;
+                        uncertain |= weight < confidentWeight;
+                    }
+                }
+                return new LocalResult(people, uncertain);
+            } catch (RuntimeException e) {
+                log.warn("Local person detection failed: {}", e.getMessage());
+                return null;
+            }
+        }
+    }
+}
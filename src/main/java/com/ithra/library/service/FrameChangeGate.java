@@ -0,0 +1,86 @@
+package com.ithra.library.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+
+/**
+ * Detects near-duplicate frames in a sequence using a 64-bit difference hash (dHash).
+ * Each frame is compared against the last frame that was let through, so slow
+ * drift still triggers a new analysis once it exceeds the threshold.
+ * The distance is measured even when the gate is disabled, so it can drive
+ * {@link AdaptiveFrameSampler}.
+ * Not thread-safe: create one gate per video or live stream.
+ */
+public class FrameChangeGate {
+
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+
+    private final boolean enabled;
+    private final int maxDistance;
+    private final BufferedImage scratch =
+            new BufferedImage(HASH_WIDTH, HASH_HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+
+    private long lastHash;
+    private boolean hasLast;
+    private int lastDistance = -1;
+
+    /**
+     * @param enabled     when false every frame is reported as changed
+     * @param maxDistance max Hamming distance (0-64) at which a frame still counts as unchanged
+     */
+    public FrameChangeGate(boolean enabled, int maxDistance) {
+        this.enabled = enabled;
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * Returns true if the frame differs enough from the last accepted frame to be analyzed
+     */
+    public boolean hasChanged(BufferedImage image) {
+        long hash = dHash(image);
+
+        if (!hasLast) {
+            lastHash = hash;
+            hasLast = true;
+            lastDistance = -1;
+            return true;
+        }
+
+        lastDistance = Long.bitCount(hash ^ lastHash);
+        if (enabled && lastDistance <= maxDistance) {
+            return false;
+        }
+
+        lastHash = hash;
+        return true;
+    }
+
+    /**
+     * Hamming distance of the last checked frame to the last accepted one, or -1 for the first frame
+     */
+    public int getLastDistance() {
+        return lastDistance;
+    }
+
+    private long dHash(BufferedImage image) {
+        Graphics2D g = scratch.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, HASH_WIDTH, HASH_HEIGHT, null);
+        g.dispose();
+
+        Raster raster = scratch.getRaster();
+        long hash = 0L;
+        for (int y = 0; y < HASH_HEIGHT; y++) {
+            for (int x = 0; x < HASH_WIDTH - 1; x++) {
+                hash <<= 1;
+                if (raster.getSample(x, y, 0) > raster.getSample(x + 1, y, 0)) {
+                    hash |= 1L;
+                }
+            }
+        }
+        return hash;
+    }
+}
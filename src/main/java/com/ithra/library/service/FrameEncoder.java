@@ -0,0 +1,98 @@
+package com.ithra.library.service;
+
+import com.google.protobuf.ByteString;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Encodes decoded frames to JPEG directly into a protobuf {@link ByteString},
+ * so the bytes handed to Vision are never copied again.
+ * Frames larger than {@code maxDimension} are downscaled first; the JPEG writer
+ * and the scale buffer are reused per thread instead of being created per frame.
+ * The scale travels with the encoded bytes, so detections on the encoded image can be
+ * mapped back to source frame pixels.
+ */
+@Component
+public class FrameEncoder {
+
+    private final int maxDimension;
+    private final float jpegQuality;
+
+    private final ThreadLocal<ImageWriter> writers = ThreadLocal.withInitial(() ->
+            ImageIO.getImageWritersByFormatName("jpg").next());
+    private final ThreadLocal<BufferedImage> scaleBuffers = new ThreadLocal<>();
+
+    public FrameEncoder(@Value("${app.frame.encode.max-dimension:1280}") int maxDimension,
+                        @Value("${app.frame.encode.jpeg-quality:0.85}") float jpegQuality) {
+        this.maxDimension = maxDimension;
+        this.jpegQuality = jpegQuality;
+    }
+
+    /**
+     * JPEG bytes of a frame and the factor it was scaled by (encoded / source pixels, 1 if not downscaled)
+     */
+    public record EncodedFrame(ByteString image, double scale) {
+    }
+
+    /**
+     * Downscale the image if needed and encode it as JPEG
+     */
+    public EncodedFrame encode(BufferedImage image) throws IOException {
+        BufferedImage source = downscale(image);
+        double scale = (double) source.getWidth() / image.getWidth();
+
+        ImageWriter writer = writers.get();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+
+        // Roughly one byte per 10 pixels is typical for camera frames at this quality
+        ByteString.Output out = ByteString.newOutput(Math.max(4096, source.getWidth() * source.getHeight() / 10));
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(source, null, null), param);
+        } finally {
+            writer.setOutput(null);
+        }
+        return new EncodedFrame(out.toByteString(), scale);
+    }
+
+    private BufferedImage downscale(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int longest = Math.max(width, height);
+        if (maxDimension <= 0 || longest <= maxDimension) {
+            return image;
+        }
+
+        double scale = (double) maxDimension / longest;
+        int scaledWidth = Math.max(1, (int) Math.round(width * scale));
+        int scaledHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage target = scaleBuffers.get();
+        if (target == null || target.getWidth() != scaledWidth || target.getHeight() != scaledHeight) {
+            target = new BufferedImage(scaledWidth, scaledHeight, BufferedImage.TYPE_3BYTE_BGR);
+            scaleBuffers.set(target);
+        }
+
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(image, 0, 0, scaledWidth, scaledHeight, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+}
@@ -0,0 +1,262 @@
+package com.ithra.library.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ithra.library.dto.GlobalSearchHit;
+import com.ithra.library.dto.GlobalSearchRequest;
+import com.ithra.library.entity.DetectedBook;
+import com.ithra.library.entity.DetectedObject;
+import com.ithra.library.entity.DetectedPerson;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Searches detections across all media files and streams the results as NDJSON.
+ * Rows are read in pages with keyset pagination on (detectedAt, id), served by the
+ * {@code (detectedAt, id)} indexes, so each page is an index range scan no matter how
+ * deep the client has paged, and every page is flushed before the next one is read.
+ */
+@Service
+@Slf4j
+public class GlobalSearchService {
+
+    private final ObjectMapper objectMapper;
+    private final int pageSize;
+    private final int maxResults;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public GlobalSearchService(ObjectMapper objectMapper,
+                               @Value("${app.query.global.page-size:500}") int pageSize,
+                               @Value("${app.query.global.max-results:10000}") int maxResults) {
+        this.objectMapper = objectMapper;
+        this.pageSize = pageSize;
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Validate the request and return a body that streams one JSON hit per line
+     */
+    public StreamingResponseBody search(GlobalSearchRequest request) {
+        validate(request);
+        return out -> stream(request, out);
+    }
+
+    void stream(GlobalSearchRequest request, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        int limit = request.getLimit() != null ? Math.min(request.getLimit(), maxResults) : maxResults;
+        LocalDateTime afterDetectedAt = request.getAfterDetectedAt();
+        Long afterId = request.getAfterId();
+        int sent = 0;
+
+        while (sent < limit) {
+            int size = Math.min(pageSize, limit - sent);
+            List<GlobalSearchHit> page = fetchPage(request, afterDetectedAt, afterId, size);
+            for (GlobalSearchHit hit : page) {
+                out.write(objectMapper.writeValueAsBytes(hit));
+                out.write('\n');
+            }
+            out.flush();
+            sent += page.size();
+
+            if (page.size() < size) {
+                break;
+            }
+            GlobalSearchHit last = page.get(page.size() - 1);
+            afterDetectedAt = last.getDetectedAt();
+            afterId = last.getId();
+        }
+
+        log.info("Global {} search streamed {} results in {} ms",
+                request.getType(), sent, System.currentTimeMillis() - start);
+    }
+
+    private List<GlobalSearchHit> fetchPage(GlobalSearchRequest request,
+                                            LocalDateTime afterDetectedAt, Long afterId, int size) {
+        return switch (request.getType()) {
+            case PERSON -> fetch(DetectedPerson.class, request, afterDetectedAt, afterId, size)
+                    .stream().map(this::toHit).toList();
+            case OBJECT -> fetch(DetectedObject.class, request, afterDetectedAt, afterId, size)
+                    .stream().map(this::toHit).toList();
+            case BOOK -> fetch(DetectedBook.class, request, afterDetectedAt, afterId, size)
+                    .stream().map(this::toHit).toList();
+        };
+    }
+
+    private <T> List<T> fetch(Class<T> entity, GlobalSearchRequest request,
+                              LocalDateTime afterDetectedAt, Long afterId, int size) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(entity);
+        Root<T> root = query.from(entity);
+        Path<LocalDateTime> detectedAt = root.get("detectedAt");
+        Path<Long> id = root.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        switch (request.getType()) {
+            case PERSON -> addPersonFilters(request, cb, root, predicates);
+            case OBJECT -> addObjectFilters(request, cb, root, predicates);
+            case BOOK -> addBookFilters(request, cb, root, predicates);
+        }
+
+        if (request.getMediaFileId() != null) {
+            predicates.add(cb.equal(root.get("mediaFile").get("id"), request.getMediaFileId()));
+        }
+        if (request.getMinConfidence() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.<Double>get("confidence"), request.getMinConfidence()));
+        }
+        if (request.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(detectedAt, request.getFrom()));
+        }
+        if (request.getTo() != null) {
+            predicates.add(cb.lessThan(detectedAt, request.getTo()));
+        }
+        if (request.getFromHour() != null || request.getToHour() != null) {
+            predicates.add(hourFilter(request, cb, detectedAt));
+        }
+
+        // Keyset: strictly after the last row of the previous page
+        if (afterDetectedAt != null) {
+            Predicate later = cb.greaterThan(detectedAt, afterDetectedAt);
+            predicates.add(afterId != null
+                    ? cb.or(later, cb.and(cb.equal(detectedAt, afterDetectedAt), cb.greaterThan(id, afterId)))
+                    : later);
+        }
+
+        query.where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(detectedAt), cb.asc(id));
+        return entityManager.createQuery(query)
+                .setMaxResults(size)
+                .getResultList();
+    }
+
+    private static void addPersonFilters(GlobalSearchRequest request, CriteriaBuilder cb,
+                                         Root<?> root, List<Predicate> predicates) {
+        if (request.getAgeCategory() != null) {
+            predicates.add(cb.equal(root.get("ageCategory"), request.getAgeCategory()));
+        }
+        if (request.getGender() != null) {
+            predicates.add(cb.equal(root.get("gender"), request.getGender()));
+        }
+        if (request.getEmotionalState() != null) {
+            predicates.add(cb.equal(root.get("emotionalState"), request.getEmotionalState()));
+        }
+    }
+
+    private static void addObjectFilters(GlobalSearchRequest request, CriteriaBuilder cb,
+                                         Root<?> root, List<Predicate> predicates) {
+        if (request.getObjectName() != null && !request.getObjectName().isBlank()) {
+            predicates.add(contains(cb, root.get("objectName"), request.getObjectName()));
+        }
+        if (request.getCategory() != null && !request.getCategory().isBlank()) {
+            predicates.add(cb.equal(cb.lower(root.get("category")), request.getCategory().toLowerCase()));
+        }
+    }
+
+    private static void addBookFilters(GlobalSearchRequest request, CriteriaBuilder cb,
+                                       Root<?> root, List<Predicate> predicates) {
+        if (request.getText() != null && !request.getText().isBlank()) {
+            predicates.add(cb.or(
+                    contains(cb, root.get("bookName"), request.getText()),
+                    contains(cb, root.get("author"), request.getText())));
+        }
+    }
+
+    private static Predicate contains(CriteriaBuilder cb, Expression<String> field, String value) {
+        return cb.like(cb.lower(field), "%" + value.toLowerCase() + "%");
+    }
+
+    /**
+     * Hour of day of detectedAt in [fromHour, toHour), wrapping past midnight.
+     * Uses PostgreSQL's date_part; the dialect registers no portable hour() function.
+     */
+    private static Predicate hourFilter(GlobalSearchRequest request, CriteriaBuilder cb,
+                                        Path<LocalDateTime> detectedAt) {
+        double fromHour = request.getFromHour() != null ? request.getFromHour() : 0;
+        double toHour = request.getToHour() != null ? request.getToHour() : 24;
+        Expression<Double> hour = cb.function("date_part", Double.class, cb.literal("hour"), detectedAt);
+
+        Predicate afterStart = cb.greaterThanOrEqualTo(hour, fromHour);
+        Predicate beforeEnd = cb.lessThan(hour, toHour);
+        return fromHour <= toHour ? cb.and(afterStart, beforeEnd) : cb.or(afterStart, beforeEnd);
+    }
+
+    private static void validate(GlobalSearchRequest request) {
+        if (request.getType() == null) {
+            throw new IllegalArgumentException("Detection type is required");
+        }
+        if (!validHour(request.getFromHour()) || !validHour(request.getToHour())) {
+            throw new IllegalArgumentException("Hours must be between 0 and 24");
+        }
+        if (request.getLimit() != null && request.getLimit() <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        if (request.getAfterId() != null && request.getAfterDetectedAt() == null) {
+            throw new IllegalArgumentException("afterId requires afterDetectedAt");
+        }
+    }
+
+    private static boolean validHour(Integer hour) {
+        return hour == null || (hour >= 0 && hour <= 24);
+    }
+
+    private GlobalSearchHit toHit(DetectedPerson person) {
+        String description = person.getAiDescription();
+        if (description == null || EntityEnrichmentService.PENDING_DESCRIPTION.equals(description)) {
+            description = String.format("%s person, %s", person.getAgeCategory(), person.getEmotionalState());
+        }
+        return GlobalSearchHit.builder()
+                .type("person")
+                .id(person.getId())
+                .mediaFileId(person.getMediaFile().getId())
+                .description(description)
+                .confidence(person.getConfidence())
+                .frameNumber(person.getFrameNumber())
+                .timestamp(person.getTimestamp())
+                .detectedAt(person.getDetectedAt())
+                .build();
+    }
+
+    private GlobalSearchHit toHit(DetectedObject object) {
+        return GlobalSearchHit.builder()
+                .type("object")
+                .id(object.getId())
+                .mediaFileId(object.getMediaFile().getId())
+                .description(object.getObjectName() + " (" + object.getCategory() + ")")
+                .confidence(object.getConfidence())
+                .frameNumber(object.getFrameNumber())
+                .timestamp(object.getTimestamp())
+                .detectedAt(object.getDetectedAt())
+                .build();
+    }
+
+    private GlobalSearchHit toHit(DetectedBook book) {
+        return GlobalSearchHit.builder()
+                .type("book")
+                .id(book.getId())
+                .mediaFileId(book.getMediaFile().getId())
+                .description(book.getAuthor() != null
+                        ? book.getBookName() + " by " + book.getAuthor()
+                        : book.getBookName())
+                .confidence(book.getConfidence())
+                .frameNumber(book.getFrameNumber())
+                .timestamp(book.getTimestamp())
+                .detectedAt(book.getDetectedAt())
+                .build();
+    }
+}
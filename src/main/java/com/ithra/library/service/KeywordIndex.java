@@ -0,0 +1,344 @@
+package com.ithra.library.service;
+
+import com.ithra.library.entity.DetectedBook;
+import com.ithra.library.entity.DetectedObject;
+import com.ithra.library.repository.DetectedBookRepository;
+import com.ithra.library.repository.DetectedObjectRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index from lower-cased tokens to the detections that contain them,
+ * across all media files. Covers object names and categories, and book titles, authors
+ * and OCR text. Rows are added as they are committed and the index is rebuilt from the
+ * database at startup; rows committed or deleted while it is rebuilt are buffered and
+ * applied once the rebuild is done.
+ * <p>
+ * Query syntax: whitespace-separated terms must all match (AND), {@code OR} separates
+ * alternatives, and a trailing {@code *} makes a term a prefix, e.g. {@code "harry pott* OR laptop"}.
+ */
+@Component
+@Slf4j
+public class KeywordIndex {
+
+    public enum DetectionType {
+        OBJECT, BOOK
+    }
+
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int REBUILD_PAGE_SIZE = 5000;
+
+    private final DetectedObjectRepository objectRepository;
+    private final DetectedBookRepository bookRepository;
+    private final ConcurrentSkipListMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+    // Updates take the read lock; the rebuild takes the write lock to start and stop buffering
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private Queue<Runnable> buffered;
+
+    @Value("${app.search.keyword-index.enabled:true}")
+    private boolean enabled;
+
+    public KeywordIndex(DetectedObjectRepository objectRepository,
+                        DetectedBookRepository bookRepository) {
+        this.objectRepository = objectRepository;
+        this.bookRepository = bookRepository;
+    }
+
+    /**
+     * One detection matching a query
+     */
+    public record Hit(DetectionType type, long detectionId, long mediaFileId, double timestamp) {
+    }
+
+    /**
+     * Load all existing objects and books, page by page
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        rebuildLock.writeLock().lock();
+        try {
+            buffered = new ConcurrentLinkedQueue<>();
+            terms.clear();
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+
+            Page<DetectedObject> objects;
+            int page = 0;
+            do {
+                objects = objectRepository.findAll(PageRequest.of(page++, REBUILD_PAGE_SIZE, Sort.by("id")));
+                objects.forEach(this::addObject);
+            } while (objects.hasNext());
+
+            Page<DetectedBook> books;
+            page = 0;
+            do {
+                books = bookRepository.findAll(PageRequest.of(page++, REBUILD_PAGE_SIZE, Sort.by("id")));
+                books.forEach(this::addBook);
+            } while (books.hasNext());
+
+            log.info("Keyword index built with {} terms in {} ms",
+                    terms.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Error building keyword index", e);
+        } finally {
+            // Rows the scan already saw are added twice; searches collapse hits by id
+            rebuildLock.writeLock().lock();
+            try {
+                buffered.forEach(Runnable::run);
+                buffered = null;
+            } finally {
+                rebuildLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Index saved detections. When called inside a transaction the rows are
+     * indexed after commit so rolled back rows never become searchable.
+     */
+    public void index(List<DetectedObject> objects, List<DetectedBook> books) {
+        if (!enabled || (objects.isEmpty() && books.isEmpty())) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<DetectedObject> objectSnapshot = new ArrayList<>(objects);
+            List<DetectedBook> bookSnapshot = new ArrayList<>(books);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update(() -> {
+                        objectSnapshot.forEach(KeywordIndex.this::addObject);
+                        bookSnapshot.forEach(KeywordIndex.this::addBook);
+                    });
+                }
+            });
+        } else {
+            List<DetectedObject> objectSnapshot = new ArrayList<>(objects);
+            List<DetectedBook> bookSnapshot = new ArrayList<>(books);
+            update(() -> {
+                objectSnapshot.forEach(this::addObject);
+                bookSnapshot.forEach(this::addBook);
+            });
+        }
+    }
+
+    /**
+     * Drop all postings of a deleted media file
+     */
+    public void removeMediaFile(Long mediaFileId) {
+        update(() -> {
+            for (String term : terms.keySet()) {
+                terms.computeIfPresent(term, (t, postings) -> {
+                    postings.removeMediaFile(mediaFileId);
+                    return postings.isEmpty() ? null : postings;
+                });
+            }
+        });
+    }
+
+    /**
+     * Apply an incremental update now, or after the rebuild if one is running
+     */
+    private void update(Runnable update) {
+        rebuildLock.readLock().lock();
+        try {
+            if (buffered != null) {
+                buffered.add(update);
+                return;
+            }
+            update.run();
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Detections matching the query, optionally restricted to one media file
+     */
+    public List<Hit> search(String query, Long mediaFileId) {
+        Map<Long, Hit> result = new HashMap<>();
+
+        for (String alternative : query.trim().split("\\s+OR\\s+")) {
+            Map<Long, Hit> matches = null;
+            for (String term : alternative.trim().split("\\s+")) {
+                Map<Long, Hit> termHits = lookup(term, mediaFileId);
+                if (matches == null) {
+                    matches = termHits;
+                } else {
+                    matches.keySet().retainAll(termHits.keySet());
+                }
+                if (matches.isEmpty()) {
+                    break;
+                }
+            }
+            if (matches != null) {
+                result.putAll(matches);
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    public int getTermCount() {
+        return terms.size();
+    }
+
+    /**
+     * Hits of one term, keyed by detection; a trailing '*' matches every term with that prefix
+     */
+    private Map<Long, Hit> lookup(String term, Long mediaFileId) {
+        Map<Long, Hit> hits = new HashMap<>();
+        boolean prefix = term.endsWith("*");
+        String token = normalize(prefix ? term.substring(0, term.length() - 1) : term);
+        if (token.isEmpty()) {
+            return hits;
+        }
+
+        Collection<Postings> postings;
+        if (prefix) {
+            ConcurrentNavigableMap<String, Postings> range = terms.subMap(token, true, token + Character.MAX_VALUE, false);
+            postings = range.values();
+        } else {
+            Postings exact = terms.get(token);
+            postings = exact != null ? List.of(exact) : List.of();
+        }
+
+        postings.forEach(p -> p.collect(mediaFileId, hits));
+        return hits;
+    }
+
+    private void addObject(DetectedObject object) {
+        if (object.getId() == null || object.getMediaFile() == null) {
+            return;
+        }
+        Set<String> tokens = tokenize(object.getObjectName(), object.getCategory());
+        add(tokens, DetectionType.OBJECT, object.getId(), object.getMediaFile().getId(), object.getTimestamp());
+    }
+
+    private void addBook(DetectedBook book) {
+        if (book.getId() == null || book.getMediaFile() == null) {
+            return;
+        }
+        Set<String> tokens = tokenize(book.getBookName(), book.getAuthor(), book.getExtractedText());
+        add(tokens, DetectionType.BOOK, book.getId(), book.getMediaFile().getId(), book.getTimestamp());
+    }
+
+    private void add(Set<String> tokens, DetectionType type, long id, long mediaFileId, Double timestamp) {
+        double time = timestamp != null ? timestamp : Double.NaN;
+        for (String token : tokens) {
+            // Appended inside compute, so a concurrent removeMediaFile cannot drop the list meanwhile
+            terms.compute(token, (t, postings) -> {
+                Postings target = postings != null ? postings : new Postings();
+                target.add(type, id, mediaFileId, time);
+                return target;
+            });
+        }
+    }
+
+    /**
+     * Distinct lower-case tokens of the given texts, split on anything but letters and digits
+     */
+    static Set<String> tokenize(String... texts) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            Arrays.stream(text.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+                    .filter(token -> token.length() >= MIN_TOKEN_LENGTH)
+                    .forEach(tokens::add);
+        }
+        return tokens;
+    }
+
+    private static String normalize(String term) {
+        return term.toLowerCase().replaceAll("[^\\p{L}\\p{N}]", "");
+    }
+
+    /**
+     * Posting list of one term, stored as parallel primitive arrays
+     */
+    private static class Postings {
+        private byte[] types = new byte[4];
+        private long[] ids = new long[4];
+        private long[] mediaFileIds = new long[4];
+        private double[] timestamps = new double[4];
+        private int size;
+
+        synchronized void add(DetectionType type, long id, long mediaFileId, double timestamp) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                types = Arrays.copyOf(types, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                mediaFileIds = Arrays.copyOf(mediaFileIds, capacity);
+                timestamps = Arrays.copyOf(timestamps, capacity);
+            }
+            types[size] = (byte) type.ordinal();
+            ids[size] = id;
+            mediaFileIds[size] = mediaFileId;
+            timestamps[size] = timestamp;
+            size++;
+        }
+
+        synchronized void collect(Long mediaFileId, Map<Long, Hit> hits) {
+            for (int i = 0; i < size; i++) {
+                if (mediaFileId != null && mediaFileIds[i] != mediaFileId) {
+                    continue;
+                }
+                // Ids are unique per table, the low bit tells the tables apart
+                long key = ids[i] * 2 + types[i];
+                hits.putIfAbsent(key, new Hit(DetectionType.values()[types[i]], ids[i],
+                        mediaFileIds[i], timestamps[i]));
+            }
+        }
+
+        synchronized void removeMediaFile(long mediaFileId) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (mediaFileIds[i] == mediaFileId) {
+                    continue;
+                }
+                types[kept] = types[i];
+                ids[kept] = ids[i];
+                mediaFileIds[kept] = mediaFileIds[i];
+                timestamps[kept] = timestamps[i];
+                kept++;
+            }
+            size = kept;
+        }
+
+        synchronized boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
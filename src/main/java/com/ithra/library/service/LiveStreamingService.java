@@ -4,6 +4,9 @@ package com.ithra.library.service;
 import com.ithra.library.dto.*;
 import com.ithra.library.entity.*;
 import com.ithra.library.repository.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bytedeco.javacv.*;
@@ -11,13 +14,15 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -29,8 +34,12 @@ public class LiveStreamingService {
     private final DetectedPersonRepository personRepository;
     private final DetectedObjectRepository objectRepository;
     private final DetectedBookRepository bookRepository;
-    private final VisionAnalysisService visionService;
     private final OpenAIService aiService;
+    private final DetectionWriter detectionWriter;
+    private final StreamFrameScheduler frameScheduler;
+    private final FrameEncoder frameEncoder;
+    private final FrameCascade frameCascade;
+    private final MeterRegistry meterRegistry;
 
     @Value("${app.streaming.hls-dir}")
     private String hlsDir;
@@ -38,8 +47,81 @@ public class LiveStreamingService {
     @Value("${app.streaming.frame-extraction-interval}")
     private int frameInterval;
 
+    @Value("${app.frame.dedup.enabled:true}")
+    private boolean dedupEnabled;
+
+    @Value("${app.frame.dedup.max-distance:3}")
+    private int dedupMaxDistance;
+
+    @Value("${app.tracking.enabled:true}")
+    private boolean trackingEnabled;
+
+    @Value("${app.tracking.iou-threshold:0.3}")
+    private double trackingIouThreshold;
+
+    @Value("${app.tracking.max-missed-frames:3}")
+    private int trackingMaxMissedFrames;
+
+    @Value("${app.frame.adaptive.enabled:true}")
+    private boolean adaptiveEnabled;
+
+    @Value("${app.frame.adaptive.min-interval:10}")
+    private int adaptiveMinInterval;
+
+    @Value("${app.frame.adaptive.max-interval:120}")
+    private int adaptiveMaxInterval;
+
+    @Value("${app.frame.adaptive.active-distance:12}")
+    private int adaptiveActiveDistance;
+
+    @Value("${app.streaming.frame-count-flush-ms:5000}")
+    private long frameCountFlushMs;
+
+    @Value("${app.streaming.max-pending-frames:32}")
+    private int maxPendingFrames;
+
+    @Value("${app.streaming.max-concurrent-streams:20}")
+    private int maxConcurrentStreams;
+
+    @Value("${app.processing.virtual-threads:false}")
+    private boolean virtualThreads;
+
     private final Map<String, StreamProcessor> activeStreams = new ConcurrentHashMap<>();
-    private final ExecutorService streamExecutor = Executors.newCachedThreadPool();
+    private final AtomicInteger streamThreadCount = new AtomicInteger();
+    private ExecutorService streamExecutor;
+    private final ScheduledExecutorService frameCountFlusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "StreamFrameCountFlusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void start() {
+        if (virtualThreads) {
+            // Processors mostly block on the grabber and on I/O; the stream count is capped in startStreamProcessor
+            streamExecutor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("StreamProcessor-", 1).factory());
+        } else {
+            // One thread per stream, bounded; extra streams are rejected instead of piling up
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    maxConcurrentStreams, maxConcurrentStreams, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), r -> new Thread(r, "StreamProcessor-" + streamThreadCount.incrementAndGet()));
+            executor.allowCoreThreadTimeOut(true);
+            streamExecutor = executor;
+        }
+
+        frameCountFlusher.scheduleWithFixedDelay(() -> activeStreams.values()
+                        .forEach(StreamProcessor::flushFrameCount),
+                frameCountFlushMs, frameCountFlushMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        activeStreams.values().forEach(StreamProcessor::stop);
+        streamExecutor.shutdown();
+        frameCountFlusher.shutdownNow();
+        activeStreams.values().forEach(StreamProcessor::flushFrameCount);
+    }
 
     /**
      * Start a new live stream
@@ -121,6 +203,10 @@ public class LiveStreamingService {
         );
 
         MediaFile mediaFile = liveStream.getMediaFile();
+        if (processor != null) {
+            // The entity is saved below, so it must carry the in-memory frame count
+            mediaFile.setTotalFramesProcessed(processor.totalFrames());
+        }
         mediaFile.setIsLive(false);
         mediaFile.setStatus(MediaFile.ProcessingStatus.COMPLETED);
         mediaFile.setStreamEndTime(LocalDateTime.now());
@@ -190,11 +276,39 @@ public class LiveStreamingService {
 
     private void startStreamProcessor(String streamKey, Long mediaFileId,
                                       StreamConfig config) {
+        if (activeStreams.size() >= maxConcurrentStreams) {
+            throw new RuntimeException("Maximum number of concurrent streams reached: " + maxConcurrentStreams);
+        }
+
         StreamProcessor processor = new StreamProcessor(
                 streamKey, mediaFileId, config
         );
         activeStreams.put(streamKey, processor);
-        streamExecutor.submit(processor);
+        try {
+            streamExecutor.submit(processor);
+        } catch (RejectedExecutionException e) {
+            activeStreams.remove(streamKey);
+            frameScheduler.unregister(streamKey);
+            throw new RuntimeException("Maximum number of concurrent streams reached: " + maxConcurrentStreams);
+        }
+    }
+
+    /**
+     * Sampler for a stream; StreamConfig bounds override the application defaults
+     */
+    private AdaptiveFrameSampler newSampler(StreamConfig config) {
+        int interval = config != null && config.getAnalysisInterval() != null
+                ? config.getAnalysisInterval() : frameInterval;
+        if (!adaptiveEnabled) {
+            return AdaptiveFrameSampler.fixed(interval);
+        }
+
+        int minInterval = config != null && config.getMinAnalysisInterval() != null
+                ? config.getMinAnalysisInterval() : Math.min(interval, adaptiveMinInterval);
+        int maxInterval = config != null && config.getMaxAnalysisInterval() != null
+                ? config.getMaxAnalysisInterval() : Math.max(interval, adaptiveMaxInterval);
+        return new AdaptiveFrameSampler(interval, minInterval, maxInterval,
+                dedupMaxDistance, adaptiveActiveDistance);
     }
 
     private String generateRTMPUrl(String streamKey) {
@@ -224,18 +338,41 @@ public class LiveStreamingService {
         private final String streamKey;
         private final Long mediaFileId;
         private final StreamConfig config;
+        private final FrameChangeGate changeGate;
+        private final AdaptiveFrameSampler sampler;
+        private final StreamFrameScheduler.StreamQueue frameQueue;
+        private final FrameCascade.Session cascade;
+        private final DetectionTracker tracker;
         private volatile boolean running = true;
+        // Analyses in frame order, owned by the grabber thread; saved from the head as they complete
+        private final Deque<CompletableFuture<FrameAnalysisResult>> pending = new ArrayDeque<>();
+        // Analysis of the last changed frame; unchanged frames are saved from it once it completes
+        private CompletableFuture<FrameAnalysisResult> lastAnalysis;
         private FFmpegFrameGrabber grabber;
 
+        // Frames saved since start, written to media_files periodically by flushFrameCount
+        private final LongAdder framesProcessed = new LongAdder();
+        private volatile int baseFrames;
+        private volatile int flushedFrames = -1;
+
         public StreamProcessor(String streamKey, Long mediaFileId, StreamConfig config) {
             this.streamKey = streamKey;
             this.mediaFileId = mediaFileId;
             this.config = config;
+            this.changeGate = new FrameChangeGate(dedupEnabled, dedupMaxDistance);
+            this.sampler = newSampler(config);
+            this.frameQueue = frameScheduler.register(streamKey);
+            this.cascade = frameCascade.newSession();
+            this.tracker = new DetectionTracker(trackingEnabled, trackingIouThreshold, trackingMaxMissedFrames);
         }
 
         @Override
         public void run() {
             try {
+                baseFrames = mediaFileRepository.findById(mediaFileId)
+                        .map(MediaFile::getTotalFramesProcessed)
+                        .orElse(0);
+
                 // Initialize frame grabber for RTMP stream
                 String rtmpUrl = generateRTMPUrl(streamKey);
                 grabber = new FFmpegFrameGrabber(rtmpUrl);
@@ -252,20 +389,22 @@ public class LiveStreamingService {
                 while (running) {
                     Frame frame = grabber.grabImage();
                     if (frame == null) {
+                        savePending(false);
                         Thread.sleep(100);
                         continue;
                     }
 
                     frameCount++;
 
-                    // Process frame at intervals
-                    if (frameCount % frameInterval == 0) {
+                    // Process frames chosen by the sampler, stretched while the stream is throttled
+                    if (sampler.shouldSample(frameCount, frameQueue.getRateDivisor())) {
                         BufferedImage bufferedImage = converter.convert(frame);
                         if (bufferedImage != null) {
                             processFrame(bufferedImage, frameCount,
                                     frameCount / frameRate);
                         }
                     }
+                    savePending(false);
                 }
 
             } catch (Exception e) {
@@ -279,51 +418,118 @@ public class LiveStreamingService {
         private void processFrame(BufferedImage image, int frameNumber,
                                   double timestamp) {
             try {
-                // Convert to byte array
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ImageIO.write(image, "jpg", baos);
-                byte[] imageBytes = baos.toByteArray();
+                if (lastAnalysis != null && lastAnalysis.isCompletedExceptionally()) {
+                    // Failed or dropped: analyze this frame even if the scene looks unchanged
+                    lastAnalysis = null;
+                }
 
-                // Analyze frame
-                CompletableFuture<FrameAnalysisResult> future =
-                        visionService.analyzeFrame(imageBytes, frameNumber, timestamp);
+                // Static scene: reuse the analysis of the last changed frame instead of calling Vision again
+                boolean changed = changeGate.hasChanged(image);
+                sampler.record(changeGate.getLastDistance());
+                if (!changed && lastAnalysis != null) {
+                    pending.addLast(lastAnalysis.thenApply(
+                            result -> VisionAnalysisService.retarget(result, frameNumber, timestamp)));
+                    return;
+                }
+
+                // Downscale and encode once; the bytes go into the Vision request as they are
+                FrameEncoder.EncodedFrame encoded = frameEncoder.encode(image);
 
-                future.thenAccept(result -> saveFrameAnalysis(result));
+                // The cascade's local stage runs here, in frame order on the grabber thread;
+                // only cloud escalations go through the scheduler, sharing Vision batches across streams
+                lastAnalysis = cascade.analyze(encoded, frameNumber, timestamp,
+                        config != null ? config.getFeatureProfile() : null, this::schedule);
+                pending.addLast(lastAnalysis);
 
             } catch (Exception e) {
                 log.error("Error processing frame {}", frameNumber, e);
+                frameLost("failed");
             }
         }
 
-        @Transactional
-        private void saveFrameAnalysis(FrameAnalysisResult result) {
-            MediaFile mediaFile = mediaFileRepository.findById(mediaFileId)
-                    .orElseThrow();
+        /**
+         * Save completed analyses from the head of the queue, so frames are tracked and saved
+         * strictly in frame order. Waits for the head while more than max-pending-frames are
+         * queued, or for all of them when {@code all} is set.
+         */
+        private void savePending(boolean all) {
+            while (!pending.isEmpty()
+                    && (all || pending.peekFirst().isDone() || pending.size() > Math.max(1, maxPendingFrames))) {
+                FrameAnalysisResult result;
+                try {
+                    result = pending.pollFirst().join();
+                } catch (CompletionException | CancellationException e) {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof CancellationException) {
+                        log.debug("Frame of stream {} dropped: {}", streamKey, cause.getMessage());
+                        frameLost("dropped");
+                    } else {
+                        log.warn("Analysis failed for a frame of stream {}: {}", streamKey, cause.getMessage());
+                        frameLost("failed");
+                    }
+                    continue;
+                }
 
-            // Save detected people
-            for (PersonInfo personInfo : result.getPeople()) {
-                DetectedPerson person = convertToPersonEntity(personInfo, mediaFile);
-                personRepository.save(person);
+                try {
+                    saveFrameAnalysis(result);
+                } catch (Exception e) {
+                    log.error("Failed to save frame {} of stream {}", result.getFrameNumber(), streamKey, e);
+                    frameLost("save-error");
+                }
             }
+        }
 
-            // Save detected objects
-            for (ObjectInfo objectInfo : result.getObjects()) {
-                DetectedObject object = convertToObjectEntity(objectInfo, mediaFile);
-                objectRepository.save(object);
-            }
+        private void frameLost(String reason) {
+            meterRegistry.counter("library.stream.frames.lost", "reason", reason).increment();
+        }
 
-            // Save detected books
-            for (BookInfo bookInfo : result.getBooks()) {
-                DetectedBook book = convertToBookEntity(bookInfo, mediaFile);
-                bookRepository.save(book);
-            }
+        /**
+         * Run a cloud call once admitted by the scheduler; the result fails if the frame is dropped
+         */
+        private CompletableFuture<FrameAnalysisResult> schedule(
+                Supplier<CompletableFuture<FrameAnalysisResult>> cloudCall) {
+            CompletableFuture<FrameAnalysisResult> result = new CompletableFuture<>();
+            frameQueue.submit(() -> {
+                try {
+                    return cloudCall.get().whenComplete((analysis, error) -> {
+                        if (error != null) {
+                            result.completeExceptionally(error);
+                        } else {
+                            result.complete(analysis);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                    throw e;
+                }
+            }, () -> result.completeExceptionally(
+                    new CancellationException("Frame dropped by the stream scheduler")));
+            return result;
+        }
 
-            // Update media file counts
-            mediaFile.setTotalFramesProcessed(
-                    (mediaFile.getTotalFramesProcessed() != null ?
-                            mediaFile.getTotalFramesProcessed() : 0) + 1
-            );
-            mediaFileRepository.save(mediaFile);
+        private void saveFrameAnalysis(FrameAnalysisResult result) {
+            detectionWriter.saveFrame(tracker.assign(result), mediaFileId);
+            framesProcessed.increment();
+        }
+
+        int totalFrames() {
+            return baseFrames + framesProcessed.intValue();
+        }
+
+        /**
+         * Write the frame count with a single UPDATE if it changed since the last flush
+         */
+        synchronized void flushFrameCount() {
+            int total = totalFrames();
+            if (framesProcessed.sum() == 0 || total == flushedFrames) {
+                return;
+            }
+            try {
+                mediaFileRepository.updateTotalFramesProcessed(mediaFileId, total);
+                flushedFrames = total;
+            } catch (Exception e) {
+                log.warn("Failed to update frame count for stream {}", streamKey, e);
+            }
         }
 
         private void updateStreamStatus(LiveStream.StreamStatus status) {
@@ -339,6 +545,13 @@ public class LiveStreamingService {
         }
 
         private void cleanup() {
+            // Free the stream slot, unless a new processor already took over the key
+            activeStreams.remove(streamKey, this);
+            // Queued frames are dropped; wait for the ones already sent
+            frameScheduler.unregister(streamKey);
+            savePending(true);
+            cascade.close();
+            flushFrameCount();
             try {
                 if (grabber != null) {
                     grabber.stop();
@@ -429,6 +642,7 @@ public class LiveStreamingService {
                 .confidence(info.getConfidence())
                 .frameNumber(info.getFrameNumber())
                 .timestamp(info.getTimestamp())
+                .extractedText(info.getExtractedText())
                 .aiSummary(info.getAiSummary())
                 .build();
     }
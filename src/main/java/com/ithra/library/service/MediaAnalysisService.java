@@ -1,5 +1,6 @@
 package com.ithra.library.service;
 
+import com.google.protobuf.ByteString;
 import com.ithra.library.config.VideoProcessingService;
 import com.ithra.library.dto.*;
 import com.ithra.library.entity.DetectedBook;
@@ -28,10 +29,14 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -52,6 +57,9 @@ public class MediaAnalysisService {
     private final VisionAnalysisService visionService;
     private final VideoProcessingService videoService;
     private final OpenAIService aiService;
+    private final DetectionWriter detectionWriter;
+    private final FrameCascade frameCascade;
+    private final KeywordIndex keywordIndex;
 
     @Value("${app.upload.dir}")
     private String uploadDir;
@@ -59,11 +67,31 @@ public class MediaAnalysisService {
     @Value("${app.thumbnail.dir:uploads/thumbnails}")
     private String thumbnailDir;
 
+    @Value("${app.video.analysis.max-in-flight:32}")
+    private int maxFramesInFlight;
+
+    @Value("${app.tracking.enabled:true}")
+    private boolean trackingEnabled;
+
+    @Value("${app.tracking.iou-threshold:0.3}")
+    private double trackingIouThreshold;
+
+    @Value("${app.tracking.max-missed-frames:3}")
+    private int trackingMaxMissedFrames;
+
     /**
      * Upload and analyze media file
      */
     @Transactional
     public MediaFile uploadFile(MultipartFile file) throws Exception {
+        return uploadFile(file, new AnalysisOptions());
+    }
+
+    /**
+     * Upload and analyze media file with per-upload analysis options
+     */
+    @Transactional
+    public MediaFile uploadFile(MultipartFile file, AnalysisOptions options) throws Exception {
         log.info("Uploading file: {}", file.getOriginalFilename());
 
         // Create upload directory
@@ -97,7 +125,7 @@ public class MediaAnalysisService {
         mediaFile = mediaFileRepository.save(mediaFile);
 
         // Start async processing
-        processMediaAsync(mediaFile.getId());
+        processMediaAsync(mediaFile.getId(), options);
 
         return mediaFile;
     }
@@ -108,6 +136,15 @@ public class MediaAnalysisService {
     @Async
     @Transactional
     public void processMediaAsync(Long mediaFileId) {
+        processMediaAsync(mediaFileId, new AnalysisOptions());
+    }
+
+    /**
+     * Process media file asynchronously with the given analysis options
+     */
+    @Async
+    @Transactional
+    public void processMediaAsync(Long mediaFileId, AnalysisOptions options) {
         MediaFile mediaFile = mediaFileRepository.findById(mediaFileId)
                 .orElseThrow(() -> new RuntimeException("Media file not found"));
 
@@ -115,9 +152,9 @@ public class MediaAnalysisService {
             log.info("Starting processing for file: {}", mediaFile.getFileName());
 
             if (mediaFile.getFileType() == MediaFile.FileType.IMAGE) {
-                processImage(mediaFile);
+                processImage(mediaFile, options);
             } else if (mediaFile.getFileType() == MediaFile.FileType.VIDEO) {
-                processVideo(mediaFile);
+                processVideo(mediaFile, options);
             }
 
             // Generate thumbnail
@@ -146,11 +183,14 @@ public class MediaAnalysisService {
         }
     }
 
-    private void processImage(MediaFile mediaFile) throws Exception {
-        byte[] imageBytes = Files.readAllBytes(Paths.get(mediaFile.getFilePath()));
+    private void processImage(MediaFile mediaFile, AnalysisOptions options) throws Exception {
+        ByteString image;
+        try (InputStream in = Files.newInputStream(Paths.get(mediaFile.getFilePath()))) {
+            image = ByteString.readFrom(in);
+        }
 
         CompletableFuture<FrameAnalysisResult> future =
-                visionService.analyzeFrame(imageBytes, 0, 0.0);
+                visionService.analyzeFrame(image, 0, 0.0, options.getFeatureProfile());
 
         FrameAnalysisResult result = future.join();
 
@@ -160,22 +200,52 @@ public class MediaAnalysisService {
         mediaFile.setTotalFramesProcessed(1);
     }
 
-    private void processVideo(MediaFile mediaFile) throws Exception {
-        List<VideoProcessingService.VideoFrame> frames =
-                videoService.extractFrames(mediaFile.getFilePath());
-
+    private void processVideo(MediaFile mediaFile, AnalysisOptions options) throws Exception {
         int processedFrames = 0;
-
-        for (VideoProcessingService.VideoFrame frame : frames) {
-            CompletableFuture<FrameAnalysisResult> future =
-                    visionService.analyzeFrame(
-                            frame.getImageBytes(),
+        int window = Math.max(1, maxFramesInFlight);
+        Deque<CompletableFuture<FrameAnalysisResult>> inFlight = new ArrayDeque<>(window);
+        DetectionTracker tracker = new DetectionTracker(
+                trackingEnabled, trackingIouThreshold, trackingMaxMissedFrames);
+
+        // Frames are decoded lazily and at most `window` of them are being analyzed at once.
+        // Futures are queued in frame order, so draining from the head saves results in order.
+        try (Stream<VideoProcessingService.VideoFrame> frames =
+                     videoService.streamFrames(mediaFile.getFilePath(), options.getDecodeStrategy());
+             FrameCascade.Session cascade = frameCascade.newSession()) {
+
+            CompletableFuture<FrameAnalysisResult> lastAnalysis = null;
+            int reusedFrames = 0;
+
+            Iterator<VideoProcessingService.VideoFrame> iterator = frames.iterator();
+            while (iterator.hasNext()) {
+                VideoProcessingService.VideoFrame frame = iterator.next();
+
+                if (frame.isUnchanged() && lastAnalysis != null) {
+                    // Near-duplicate frame: reuse the previous analysis at this frame's timestamp
+                    inFlight.addLast(lastAnalysis.thenApply(result -> VisionAnalysisService.retarget(
+                            result, frame.getFrameNumber(), frame.getTimestamp())));
+                    reusedFrames++;
+                } else {
+                    lastAnalysis = cascade.analyze(
+                            frame.getImage(),
                             frame.getFrameNumber(),
-                            frame.getTimestamp()
+                            frame.getTimestamp(),
+                            options.getFeatureProfile()
                     );
+                    inFlight.addLast(lastAnalysis);
+                }
+
+                while (inFlight.size() >= window) {
+                    saveDetections(tracker.assign(inFlight.pollFirst().join()), mediaFile);
+                    processedFrames++;
+                }
+            }
 
-            FrameAnalysisResult result = future.join();
-            saveDetections(result, mediaFile);
+            log.info("Reused analysis for {} unchanged frames of {}", reusedFrames, mediaFile.getFileName());
+        }
+
+        while (!inFlight.isEmpty()) {
+            saveDetections(tracker.assign(inFlight.pollFirst().join()), mediaFile);
             processedFrames++;
         }
 
@@ -183,23 +253,7 @@ public class MediaAnalysisService {
     }
 
     private void saveDetections(FrameAnalysisResult result, MediaFile mediaFile) {
-        // Save people
-        for (PersonInfo personInfo : result.getPeople()) {
-            DetectedPerson person = convertToPersonEntity(personInfo, mediaFile);
-            personRepository.save(person);
-        }
-
-        // Save objects
-        for (ObjectInfo objectInfo : result.getObjects()) {
-            DetectedObject object = convertToObjectEntity(objectInfo, mediaFile);
-            objectRepository.save(object);
-        }
-
-        // Save books
-        for (BookInfo bookInfo : result.getBooks()) {
-            DetectedBook book = convertToBookEntity(bookInfo, mediaFile);
-            bookRepository.save(book);
-        }
+        detectionWriter.saveFrame(result, mediaFile);
     }
 
     /**
@@ -279,6 +333,7 @@ public class MediaAnalysisService {
         }
 
         mediaFileRepository.delete(mediaFile);
+        keywordIndex.removeMediaFile(id);
     }
 
     /**
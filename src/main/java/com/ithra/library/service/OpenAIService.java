@@ -1,6 +1,7 @@
 // OpenAIService.java - ChatGPT Integration
 package com.ithra.library.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ithra.library.dto.*;
 import com.ithra.library.entity.DetectedObject;
@@ -8,6 +9,7 @@ import com.ithra.library.entity.DetectedPerson;
 import com.theokanning.openai.completion.chat.*;
 import com.theokanning.openai.service.OpenAiService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
@@ -21,6 +23,8 @@ public class OpenAIService {
 
     private final OpenAiService openAiService;
     private final ObjectMapper objectMapper;
+    private final EntityDescriptionCache descriptionCache;
+    private final CallLimiter openAiCallLimiter;
 
     @Value("${app.openai.model}")
     private String model;
@@ -32,9 +36,13 @@ public class OpenAIService {
     private Double temperature;
 
     public OpenAIService(@Value("${app.openai.api-key}") String apiKey,
-                         ObjectMapper objectMapper) {
+                         ObjectMapper objectMapper,
+                         EntityDescriptionCache descriptionCache,
+                         @Qualifier("openAiCallLimiter") CallLimiter openAiCallLimiter) {
         this.openAiService = new OpenAiService(apiKey, Duration.ofSeconds(60));
         this.objectMapper = objectMapper;
+        this.descriptionCache = descriptionCache;
+        this.openAiCallLimiter = openAiCallLimiter;
     }
 
     /**
@@ -55,18 +63,37 @@ public class OpenAIService {
      */
     public String generateEntityDescription(String entityType, Map<String, Object> entityData) {
         try {
-            String prompt = String.format(
-                    "Provide a natural, detailed description of this %s: %s",
-                    entityType,
-                    objectMapper.writeValueAsString(entityData)
-            );
-            return callChatGPT(prompt, "You are a helpful assistant.");
+            return describeEntity(entityType, entityData);
         } catch (Exception e) {
             log.error("Error generating entity description", e);
             return "No description available";
         }
     }
 
+    /**
+     * Same as {@link #generateEntityDescription}, but failures are thrown so callers can retry
+     */
+    public String describeEntity(String entityType, Map<String, Object> entityData)
+            throws JsonProcessingException {
+        // Sorted keys so equal maps always give the same prompt and cache key
+        String canonicalData = objectMapper.writeValueAsString(new TreeMap<>(entityData));
+        String cacheKey = descriptionCache.key(entityType, canonicalData);
+
+        String cached = descriptionCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        String prompt = String.format(
+                "Provide a natural, detailed description of this %s: %s",
+                entityType,
+                canonicalData
+        );
+        String description = callChatGPT(prompt, "You are a helpful assistant.");
+        descriptionCache.put(cacheKey, description);
+        return description;
+    }
+
     /**
      * Process natural language query with AI enhancement
      */
@@ -147,18 +174,25 @@ public class OpenAIService {
      */
     public QueryRequest.QueryType classifyQuery(String query) {
         try {
-            String prompt = String.format(
-                    "Classify this query into one of: GENERAL, COUNT, SEARCH, TEMPORAL, CONTEXTUAL. " +
-                            "Query: '%s'. Reply with only the classification.", query
-            );
-            String classification = callChatGPT(prompt, "You are a query classifier.");
-            return QueryRequest.QueryType.valueOf(classification.trim());
+            return requestQueryType(query);
         } catch (Exception e) {
             log.warn("Error classifying query, using GENERAL", e);
             return QueryRequest.QueryType.GENERAL;
         }
     }
 
+    /**
+     * Same as {@link #classifyQuery}, but failures and unknown replies are thrown
+     */
+    public QueryRequest.QueryType requestQueryType(String query) {
+        String prompt = String.format(
+                "Classify this query into one of: GENERAL, COUNT, SEARCH, TEMPORAL, CONTEXTUAL. " +
+                        "Query: '%s'. Reply with only the classification.", query
+        );
+        String classification = callChatGPT(prompt, "You are a query classifier.");
+        return QueryRequest.QueryType.valueOf(classification.trim());
+    }
+
     /**
      * Determine person's activity from context
      */
@@ -197,7 +231,7 @@ public class OpenAIService {
                 .temperature(temperature)
                 .build();
 
-        ChatCompletionResult result = openAiService.createChatCompletion(request);
+        ChatCompletionResult result = openAiCallLimiter.call(() -> openAiService.createChatCompletion(request));
         return result.getChoices().get(0).getMessage().getContent();
     }
 
@@ -0,0 +1,267 @@
+package com.ithra.library.service;
+
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+import com.google.cloud.vision.v1.BoundingPoly;
+import com.google.cloud.vision.v1.EntityAnnotation;
+import com.google.cloud.vision.v1.FaceAnnotation;
+import com.google.cloud.vision.v1.Feature;
+import com.google.cloud.vision.v1.LocalizedObjectAnnotation;
+import com.google.cloud.vision.v1.Vertex;
+import com.google.rpc.Code;
+import com.google.rpc.Status;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.javacpp.PointerScope;
+import org.bytedeco.javacpp.indexer.FloatIndexer;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Scalar;
+import org.bytedeco.opencv.opencv_core.Size;
+import org.bytedeco.opencv.opencv_dnn.Net;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Collectors;
+
+import static org.bytedeco.opencv.global.opencv_core.CV_32F;
+import static org.bytedeco.opencv.global.opencv_dnn.blobFromImage;
+import static org.bytedeco.opencv.global.opencv_dnn.readNet;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.IMREAD_COLOR;
+import static org.bytedeco.opencv.global.opencv_imgcodecs.imdecode;
+
+/**
+ * In-process backend running SSD-style detectors with OpenCV DNN on the CPU.
+ * Faces come from the OpenCV res10 SSD face model; objects from any SSD model whose
+ * output is the usual [1, 1, N, 7] detection blob (e.g. MobileNet-SSD trained on COCO),
+ * with class names read from a label file, one per line, indexed by class id.
+ * OCR is not available locally, so TEXT_DETECTION requests return no text.
+ */
+@Component
+@ConditionalOnProperty(name = "app.vision.backend", havingValue = "opencv")
+@Slf4j
+public class OpenCvDnnDetector implements VisionDetector {
+
+    private static final int FACE_INPUT_SIZE = 300;
+    private static final Scalar FACE_MEAN = new Scalar(104.0, 177.0, 123.0, 0.0);
+
+    @Value("${app.vision.opencv.face-model:./models/res10_300x300_ssd_iter_140000.caffemodel}")
+    private String faceModel;
+
+    @Value("${app.vision.opencv.face-config:./models/deploy.prototxt}")
+    private String faceConfig;
+
+    @Value("${app.vision.opencv.object-model:./models/ssd_mobilenet_v2_coco.pb}")
+    private String objectModel;
+
+    @Value("${app.vision.opencv.object-config:./models/ssd_mobilenet_v2_coco.pbtxt}")
+    private String objectConfig;
+
+    @Value("${app.vision.opencv.object-labels:./models/coco_labels.txt}")
+    private String objectLabelsPath;
+
+    @Value("${app.vision.opencv.object-input-size:300}")
+    private int objectInputSize;
+
+    @Value("${app.vision.opencv.object-scale:1.0}")
+    private double objectScale;
+
+    @Value("${app.vision.opencv.object-mean:0.0}")
+    private double objectMean;
+
+    @Value("${app.vision.opencv.object-swap-rb:true}")
+    private boolean objectSwapRb;
+
+    @Value("${app.vision.opencv.min-confidence:0.5}")
+    private float minConfidence;
+
+    @Value("${app.vision.opencv.instances:0}")
+    private int instances;
+
+    private List<String> objectLabels;
+
+    // Nets are not thread-safe: each caller borrows a face/object pair from the pool
+    private BlockingQueue<Nets> pool;
+
+    @PostConstruct
+    public void load() throws IOException {
+        objectLabels = Files.readAllLines(existing(objectLabelsPath));
+
+        int size = instances > 0 ? instances : Runtime.getRuntime().availableProcessors();
+        pool = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            pool.add(new Nets(
+                    readNet(existing(faceModel).toString(), existing(faceConfig).toString()),
+                    readNet(existing(objectModel).toString(), existing(objectConfig).toString())));
+        }
+        log.info("OpenCV DNN vision backend loaded {} model instances ({} object classes)",
+                size, objectLabels.size());
+    }
+
+    @PreDestroy
+    public void close() {
+        if (pool != null) {
+            pool.forEach(Nets::close);
+        }
+    }
+
+    @Override
+    public List<AnnotateImageResponse> annotate(List<AnnotateImageRequest> requests) {
+        Nets nets;
+        try {
+            nets = pool.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an OpenCV model", e);
+        }
+        try {
+            List<AnnotateImageResponse> responses = new ArrayList<>(requests.size());
+            for (AnnotateImageRequest request : requests) {
+                responses.add(annotate(nets, request));
+            }
+            return responses;
+        } finally {
+            pool.add(nets);
+        }
+    }
+
+    private AnnotateImageResponse annotate(Nets nets, AnnotateImageRequest request) {
+        Set<Feature.Type> features = request.getFeaturesList().stream()
+                .map(Feature::getType)
+                .collect(Collectors.toSet());
+        AnnotateImageResponse.Builder response = AnnotateImageResponse.newBuilder();
+
+        // Native matrices created while decoding and running the nets are freed with the scope
+        try (PointerScope scope = new PointerScope()) {
+            Mat image = imdecode(new Mat(request.getImage().getContent().toByteArray()), IMREAD_COLOR);
+            if (image.empty()) {
+                return response.setError(Status.newBuilder()
+                        .setCode(Code.INVALID_ARGUMENT_VALUE)
+                        .setMessage("Image could not be decoded"))
+                        .build();
+            }
+            int width = image.cols();
+            int height = image.rows();
+
+            if (features.contains(Feature.Type.FACE_DETECTION)) {
+                Mat blob = blobFromImage(image, 1.0, new Size(FACE_INPUT_SIZE, FACE_INPUT_SIZE),
+                        FACE_MEAN, false, false, CV_32F);
+                for (float[] detection : detect(nets.face, blob)) {
+                    response.addFaceAnnotations(FaceAnnotation.newBuilder()
+                            .setBoundingPoly(box(detection, width, height))
+                            .setDetectionConfidence(detection[2])
+                            .build());
+                }
+            }
+
+            if (features.contains(Feature.Type.OBJECT_LOCALIZATION)
+                    || features.contains(Feature.Type.LABEL_DETECTION)) {
+                Mat blob = blobFromImage(image, objectScale, new Size(objectInputSize, objectInputSize),
+                        new Scalar(objectMean, objectMean, objectMean, 0.0), objectSwapRb, false, CV_32F);
+                Map<String, Float> labels = new HashMap<>();
+
+                for (float[] detection : detect(nets.object, blob)) {
+                    String name = label((int) detection[1]);
+                    if (name == null) {
+                        continue;
+                    }
+                    labels.merge(name, detection[2], Math::max);
+                    if (features.contains(Feature.Type.OBJECT_LOCALIZATION)) {
+                        response.addLocalizedObjectAnnotations(LocalizedObjectAnnotation.newBuilder()
+                                .setName(name)
+                                .setScore(detection[2])
+                                .setBoundingPoly(box(detection, width, height))
+                                .build());
+                    }
+                }
+
+                // Labels are the distinct detected classes at their best score
+                if (features.contains(Feature.Type.LABEL_DETECTION)) {
+                    labels.forEach((name, score) -> response.addLabelAnnotations(EntityAnnotation.newBuilder()
+                            .setDescription(name)
+                            .setScore(score)
+                            .build()));
+                }
+            }
+        }
+
+        return response.build();
+    }
+
+    /**
+     * Run an SSD net and return the rows [image, class, confidence, x1, y1, x2, y2] above the threshold
+     */
+    private List<float[]> detect(Net net, Mat blob) {
+        net.setInput(blob);
+        Mat output = net.forward();
+
+        // Output is [1, 1, N, 7]; view it as an N x 7 matrix
+        Mat rows = new Mat(output.size(2), output.size(3), CV_32F, output.ptr());
+        List<float[]> detections = new ArrayList<>();
+        try (FloatIndexer indexer = rows.createIndexer()) {
+            for (int i = 0; i < rows.rows(); i++) {
+                if (indexer.get(i, 2) < minConfidence) {
+                    continue;
+                }
+                float[] detection = new float[7];
+                for (int j = 0; j < 7; j++) {
+                    detection[j] = indexer.get(i, j);
+                }
+                detections.add(detection);
+            }
+        }
+        return detections;
+    }
+
+    private String label(int classId) {
+        if (classId < 0 || classId >= objectLabels.size()) {
+            return null;
+        }
+        String name = objectLabels.get(classId).trim();
+        return name.isEmpty() ? null : name;
+    }
+
+    private static BoundingPoly box(float[] detection, int width, int height) {
+        int x1 = clamp(Math.round(detection[3] * width), width);
+        int y1 = clamp(Math.round(detection[4] * height), height);
+        int x2 = clamp(Math.round(detection[5] * width), width);
+        int y2 = clamp(Math.round(detection[6] * height), height);
+        return BoundingPoly.newBuilder()
+                .addVertices(Vertex.newBuilder().setX(x1).setY(y1))
+                .addVertices(Vertex.newBuilder().setX(x2).setY(y1))
+                .addVertices(Vertex.newBuilder().setX(x2).setY(y2))
+                .addVertices(Vertex.newBuilder().setX(x1).setY(y2))
+                .build();
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    private static Path existing(String path) {
+        Path file = Paths.get(path);
+        if (!Files.isRegularFile(file)) {
+            throw new RuntimeException("OpenCV vision model file not found: " + file.toAbsolutePath());
+        }
+        return file;
+    }
+
+    private record Nets(Net face, Net object) {
+        void close() {
+            face.close();
+            object.close();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.ithra.library.service;
+
+import com.ithra.library.dto.QueryRequest.QueryType;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Classifies natural language queries locally with a weighted n-gram scorer.
+ * Each word, bigram and trigram of the normalized query adds its weight to the query types
+ * it signals; the confidence is the winner's share of the total score (with a small
+ * prior, so a single weak cue is not enough). Only queries below {@code min-confidence}
+ * go to the LLM. Local and successful LLM classifications are cached per normalized
+ * query string; when the LLM call fails the local guess is used without caching it.
+ */
+@Component
+@Slf4j
+public class QueryClassifier {
+
+    // Score mass that stands for "none of the cues", so weak matches stay uncertain
+    private static final double PRIOR = 1.0;
+    // Bare keyword queries ("laptop", "harry potter") are searches
+    private static final int MAX_KEYWORD_QUERY_WORDS = 3;
+    private static final double KEYWORD_QUERY_SCORE = 2.0;
+    // Clock times ("2:30") and durations ("5 minutes", "30s")
+    private static final Pattern TIME = Pattern.compile(
+            "\\b\\d{1,2}:\\d{2}\\b|\\b\\d+\\s*(s|sec|secs|seconds?|min|mins|minutes?|h|hours?)\\b");
+
+    private static final Map<String, Map<QueryType, Double>> NGRAMS = new LinkedHashMap<>();
+
+    static {
+        // COUNT
+        cue(QueryType.COUNT, 5.0, "how many", "how much", "number of");
+        cue(QueryType.COUNT, 3.0, "count", "total");
+        cue(QueryType.COUNT, 1.5, "amount", "crowded", "busy", "occupancy");
+
+        // TEMPORAL
+        cue(QueryType.TEMPORAL, 3.0, "when", "what time", "at what", "how long", "timeline");
+        cue(QueryType.TEMPORAL, 1.5, "first", "last", "before", "after", "during", "between",
+                "until", "earliest", "latest", "minute", "minutes", "second", "seconds", "start", "end");
+
+        // SEARCH
+        cue(QueryType.SEARCH, 3.0, "find", "show me", "look for", "search", "did you see",
+                "where is", "where are");
+        cue(QueryType.SEARCH, 2.0, "is there", "are there", "was there", "were there");
+        cue(QueryType.SEARCH, 1.5, "any", "which", "where", "locate", "visible", "appear", "appears");
+
+        // CONTEXTUAL
+        cue(QueryType.CONTEXTUAL, 3.0, "why", "doing", "what is happening", "activity", "activities",
+                "interacting", "together", "relationship");
+        cue(QueryType.CONTEXTUAL, 1.5, "reading", "holding", "using", "near", "next to", "with",
+                "mood", "feeling", "behaviour", "behavior");
+
+        // GENERAL
+        cue(QueryType.GENERAL, 3.0, "describe", "summary", "summarize", "overview", "tell me about",
+                "what happened", "what is in", "what's in");
+        cue(QueryType.GENERAL, 1.5, "about", "content", "contents", "scene");
+    }
+
+    private final OpenAIService aiService;
+    private final MeterRegistry meterRegistry;
+    private final double minConfidence;
+    private final boolean llmFallback;
+    private final Map<String, QueryType> cache;
+
+    public QueryClassifier(OpenAIService aiService,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.query.classifier.min-confidence:0.6}") double minConfidence,
+                           @Value("${app.query.classifier.llm-fallback:true}") boolean llmFallback,
+                           @Value("${app.query.classifier.cache-size:1024}") int cacheSize) {
+        this.aiService = aiService;
+        this.meterRegistry = meterRegistry;
+        this.minConfidence = minConfidence;
+        this.llmFallback = llmFallback;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, QueryType>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, QueryType> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Local scoring result; confidence is in [0, 1)
+     */
+    public record Classification(QueryType type, double confidence) {
+    }
+
+    /**
+     * Query type of the query, from the cache, the local scorer or the LLM
+     */
+    public QueryType classify(String query) {
+        String normalized = normalize(query);
+        QueryType cached = cache.get(normalized);
+        if (cached != null) {
+            count("cache");
+            return cached;
+        }
+
+        Classification local = score(normalized);
+        QueryType type;
+        if (local.confidence() >= minConfidence || !llmFallback) {
+            type = local.type();
+            count("local");
+        } else {
+            log.debug("Low confidence {} ({}) for '{}', asking the LLM",
+                    local.type(), String.format("%.2f", local.confidence()), normalized);
+            try {
+                type = aiService.requestQueryType(query);
+                count("llm");
+            } catch (Exception e) {
+                // Not cached, so the query is asked again once the LLM is back
+                log.warn("LLM classification failed, using local {}: {}", local.type(), e.getMessage());
+                count("llm-error");
+                return local.type();
+            }
+        }
+
+        cache.put(normalized, type);
+        return type;
+    }
+
+    /**
+     * Score a normalized query against every query type
+     */
+    static Classification score(String normalized) {
+        Map<QueryType, Double> scores = new EnumMap<>(QueryType.class);
+        String[] words = normalized.isEmpty() ? new String[0] : normalized.split(" ");
+
+        for (int i = 0; i < words.length; i++) {
+            add(scores, NGRAMS.get(words[i]));
+            if (i + 1 < words.length) {
+                add(scores, NGRAMS.get(words[i] + " " + words[i + 1]));
+            }
+            if (i + 2 < words.length) {
+                add(scores, NGRAMS.get(words[i] + " " + words[i + 1] + " " + words[i + 2]));
+            }
+        }
+        if (TIME.matcher(normalized).find()) {
+            scores.merge(QueryType.TEMPORAL, 3.0, Double::sum);
+        }
+        if (scores.isEmpty() && words.length > 0 && words.length <= MAX_KEYWORD_QUERY_WORDS) {
+            scores.put(QueryType.SEARCH, KEYWORD_QUERY_SCORE);
+        }
+
+        QueryType best = QueryType.GENERAL;
+        double bestScore = 0.0;
+        double total = 0.0;
+        for (Map.Entry<QueryType, Double> entry : scores.entrySet()) {
+            total += entry.getValue();
+            if (entry.getValue() > bestScore) {
+                best = entry.getKey();
+                bestScore = entry.getValue();
+            }
+        }
+        return new Classification(best, bestScore / (total + PRIOR));
+    }
+
+    /**
+     * Lower case, punctuation removed (apostrophes and clock time colons kept), single spaces
+     */
+    static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        return query.toLowerCase()
+                .replaceAll("[^\\p{L}\\p{N}':]|(?<!\\d):|:(?!\\d)", " ")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    private static void cue(QueryType type, double weight, String... ngrams) {
+        for (String ngram : ngrams) {
+            NGRAMS.computeIfAbsent(ngram, k -> new EnumMap<>(QueryType.class)).merge(type, weight, Double::sum);
+        }
+    }
+
+    private static void add(Map<QueryType, Double> scores, Map<QueryType, Double> weights) {
+        if (weights != null) {
+            weights.forEach((type, weight) -> scores.merge(type, weight, Double::sum));
+        }
+    }
+
+    private void count(String source) {
+        meterRegistry.counter("library.query.classifier", "source", source).increment();
+    }
+}
@@ -18,12 +18,12 @@ import java.util.stream.Collectors;
 @Slf4j
 public class QueryService {
 
-    private final DetectedPersonRepository personRepository;
-    private final DetectedObjectRepository objectRepository;
-    private final DetectedBookRepository bookRepository;
     private final MediaFileRepository mediaFileRepository;
+    private final DetectionIndexService indexService;
+    private final KeywordIndex keywordIndex;
     private final QueryHistoryRepository queryHistoryRepository;
     private final OpenAIService aiService;
+    private final QueryClassifier queryClassifier;
 
     /**
      * Process natural language query with AI enhancement
@@ -36,19 +36,20 @@ public class QueryService {
             log.info("Processing query: {} for media {}",
                     request.getQuery(), request.getMediaFileId());
 
-            // Classify query type using AI if not provided
+            // Classify query type locally (AI only for uncertain queries) if not provided
             if (request.getQueryType() == null) {
-                request.setQueryType(aiService.classifyQuery(request.getQuery()));
+                request.setQueryType(queryClassifier.classify(request.getQuery()));
             }
 
             // Get media context
             MediaFile mediaFile = mediaFileRepository.findById(request.getMediaFileId())
                     .orElseThrow(() -> new RuntimeException("Media file not found"));
 
-            MediaAnalysisResult context = buildMediaContext(mediaFile);
+            DetectionIndex index = indexService.get(mediaFile, request.getTimeRange());
+            MediaAnalysisResult context = buildMediaContext(mediaFile, index);
 
             // Search for matches
-            List<QueryMatch> matches = searchMatches(request, context);
+            List<QueryMatch> matches = searchMatches(request, index);
 
             // Generate AI-enhanced answer
             String aiAnswer = aiService.enhanceQueryResponse(request, matches, context);
@@ -87,19 +88,18 @@ public class QueryService {
     /**
      * Search for matches based on query
      */
-    private List<QueryMatch> searchMatches(QueryRequest request,
-                                           MediaAnalysisResult context) {
+    private List<QueryMatch> searchMatches(QueryRequest request, DetectionIndex index) {
         List<QueryMatch> matches = new ArrayList<>();
         String query = request.getQuery().toLowerCase();
 
         // Search people
-        matches.addAll(searchPeople(request.getMediaFileId(), query, request.getTimeRange()));
+        matches.addAll(searchPeople(index, query, request.getTimeRange()));
 
         // Search objects
-        matches.addAll(searchObjects(request.getMediaFileId(), query, request.getTimeRange()));
+        matches.addAll(searchObjects(index, query, request.getTimeRange()));
 
         // Search books
-        matches.addAll(searchBooks(request.getMediaFileId(), query, request.getTimeRange()));
+        matches.addAll(searchBooks(index, query, request.getTimeRange()));
 
         // Sort by confidence
         matches.sort((a, b) -> Double.compare(b.getConfidence(), a.getConfidence()));
@@ -107,65 +107,63 @@ public class QueryService {
         return matches;
     }
 
-    private List<QueryMatch> searchPeople(Long mediaFileId, String query, TimeRange timeRange) {
+    private List<QueryMatch> searchPeople(DetectionIndex index, String query, TimeRange timeRange) {
         List<QueryMatch> matches = new ArrayList<>();
-        List<DetectedPerson> people = personRepository.findByMediaFileId(mediaFileId);
-
-        for (DetectedPerson person : people) {
-            // Check time range
-            if (timeRange != null && person.getTimestamp() != null) {
-                if (person.getTimestamp() < timeRange.getStartTime() ||
-                        person.getTimestamp() > timeRange.getEndTime()) {
-                    continue;
-                }
-            }
 
+        // Query terms are resolved once; rows are then matched on enum ordinals
+        boolean child = query.contains("child");
+        boolean adult = query.contains("adult");
+        boolean senior = query.contains("senior");
+        boolean happy = query.contains("happy") || query.contains("smiling");
+        boolean sad = query.contains("sad");
+        boolean anyPerson = query.contains("person") || query.contains("people");
+
+        // Only rows inside the time range are visited
+        for (int row : index.personRows(timeRange)) {
             // Match against query
             boolean matches_query = false;
             String description = "";
+            DetectedPerson.AgeCategory age = index.personAge(row);
+            DetectedPerson.EmotionalState emotion = index.personEmotion(row);
 
-            if (query.contains("child") &&
-                    person.getAgeCategory() == DetectedPerson.AgeCategory.CHILD) {
+            if (child && age == DetectedPerson.AgeCategory.CHILD) {
                 matches_query = true;
                 description = "Child detected";
-            } else if (query.contains("adult") &&
-                    person.getAgeCategory() == DetectedPerson.AgeCategory.ADULT) {
+            } else if (adult && age == DetectedPerson.AgeCategory.ADULT) {
                 matches_query = true;
                 description = "Adult detected";
-            } else if (query.contains("senior") &&
-                    person.getAgeCategory() == DetectedPerson.AgeCategory.SENIOR) {
+            } else if (senior && age == DetectedPerson.AgeCategory.SENIOR) {
                 matches_query = true;
                 description = "Senior detected";
             }
 
             // Check emotions
-            if (query.contains("happy") || query.contains("smiling")) {
-                if (person.getEmotionalState() == DetectedPerson.EmotionalState.HAPPY) {
+            if (happy) {
+                if (emotion == DetectedPerson.EmotionalState.HAPPY) {
                     matches_query = true;
                     description = "Happy person detected";
                 }
-            } else if (query.contains("sad")) {
-                if (person.getEmotionalState() == DetectedPerson.EmotionalState.SAD) {
+            } else if (sad) {
+                if (emotion == DetectedPerson.EmotionalState.SAD) {
                     matches_query = true;
                     description = "Sad person detected";
                 }
             }
 
             // General person query
-            if (query.contains("person") || query.contains("people")) {
+            if (anyPerson) {
                 matches_query = true;
-                description = String.format("%s %s person",
-                        person.getEmotionalState(), person.getAgeCategory());
+                description = String.format("%s %s person", emotion, age);
             }
 
             if (matches_query) {
                 matches.add(QueryMatch.builder()
                         .type("PERSON")
                         .description(description)
-                        .frameNumber(person.getFrameNumber())
-                        .timestamp(person.getTimestamp())
-                        .confidence(person.getConfidence())
-                        .aiContext(person.getAiDescription())
+                        .frameNumber(DetectionIndex.boxed(index.personFrame(row)))
+                        .timestamp(DetectionIndex.boxed(index.personTimestamp(row)))
+                        .confidence(DetectionIndex.boxed(index.personConfidence(row)))
+                        .aiContext(index.string(index.personDescription(row)))
                         .build());
             }
         }
@@ -173,46 +171,55 @@ public class QueryService {
         return matches;
     }
 
-    private List<QueryMatch> searchObjects(Long mediaFileId, String query, TimeRange timeRange) {
+    private List<QueryMatch> searchObjects(DetectionIndex index, String query, TimeRange timeRange) {
         List<QueryMatch> matches = new ArrayList<>();
-        List<DetectedObject> objects = objectRepository.findByMediaFileId(mediaFileId);
-
-        for (DetectedObject object : objects) {
-            // Check time range
-            if (timeRange != null && object.getTimestamp() != null) {
-                if (object.getTimestamp() < timeRange.getStartTime() ||
-                        object.getTimestamp() > timeRange.getEndTime()) {
-                    continue;
-                }
+        String[] keywords = extractKeywords(query);
+        String keyword = keywords.length > 0 ? keywords[0] : null;
+        boolean drinking = query.contains("drinking") || query.contains("coffee");
+
+        // String predicates are evaluated once per distinct name and category
+        boolean[] nameMatches = new boolean[index.objectNameDictionarySize()];
+        boolean[] drinkMatches = new boolean[index.objectNameDictionarySize()];
+        for (int code = 0; code < nameMatches.length; code++) {
+            String value = index.objectNameLowerCase(code);
+            nameMatches[code] = query.contains(value) || (keyword != null && value.contains(keyword));
+            drinkMatches[code] = drinking &&
+                    (value.contains("cup") || value.contains("coffee") || value.contains("mug"));
+        }
+        boolean[] categoryMatches = new boolean[index.objectCategoryDictionarySize()];
+        for (int code = 0; code < categoryMatches.length; code++) {
+            categoryMatches[code] = query.contains(index.objectCategoryLowerCase(code));
+        }
+
+        // Only rows inside the time range are visited
+        for (int row : index.objectRows(timeRange)) {
+            int name = index.objectName(row);
+            int category = index.objectCategory(row);
+            if (name < 0) {
+                continue;
             }
+            String objectName = index.objectNameString(name);
 
             // Match against query
-            String objectName = object.getObjectName().toLowerCase();
-            String category = object.getCategory().toLowerCase();
-
-            if (query.contains(objectName) || query.contains(category) ||
-                    objectName.contains(extractKeywords(query)[0])) {
-
+            if (nameMatches[name] || (category >= 0 && categoryMatches[category])) {
                 matches.add(QueryMatch.builder()
                         .type("OBJECT")
-                        .description("Found " + object.getObjectName())
-                        .frameNumber(object.getFrameNumber())
-                        .timestamp(object.getTimestamp())
-                        .confidence(object.getConfidence())
-                        .aiContext(object.getAiDescription())
+                        .description("Found " + objectName)
+                        .frameNumber(DetectionIndex.boxed(index.objectFrame(row)))
+                        .timestamp(DetectionIndex.boxed(index.objectTimestamp(row)))
+                        .confidence(DetectionIndex.boxed(index.objectConfidence(row)))
+                        .aiContext(index.string(index.objectDescription(row)))
                         .build());
             }
 
             // Special queries
-            if ((query.contains("drinking") || query.contains("coffee")) &&
-                    (objectName.contains("cup") || objectName.contains("coffee") ||
-                            objectName.contains("mug"))) {
+            if (drinkMatches[name]) {
                 matches.add(QueryMatch.builder()
                         .type("OBJECT")
-                        .description("Person may be drinking - " + object.getObjectName() + " detected")
-                        .frameNumber(object.getFrameNumber())
-                        .timestamp(object.getTimestamp())
-                        .confidence(object.getConfidence())
+                        .description("Person may be drinking - " + objectName + " detected")
+                        .frameNumber(DetectionIndex.boxed(index.objectFrame(row)))
+                        .timestamp(DetectionIndex.boxed(index.objectTimestamp(row)))
+                        .confidence(DetectionIndex.boxed(index.objectConfidence(row)))
                         .build());
             }
         }
@@ -220,38 +227,32 @@ public class QueryService {
         return matches;
     }
 
-    private List<QueryMatch> searchBooks(Long mediaFileId, String query, TimeRange timeRange) {
+    private List<QueryMatch> searchBooks(DetectionIndex index, String query, TimeRange timeRange) {
         List<QueryMatch> matches = new ArrayList<>();
-        List<DetectedBook> books = bookRepository.findByMediaFileId(mediaFileId);
-
-        for (DetectedBook book : books) {
-            // Check time range
-            if (timeRange != null && book.getTimestamp() != null) {
-                if (book.getTimestamp() < timeRange.getStartTime() ||
-                        book.getTimestamp() > timeRange.getEndTime()) {
-                    continue;
-                }
-            }
+        boolean anyBook = query.contains("book") || query.contains("reading");
 
+        // Only rows inside the time range are visited
+        for (int row : index.bookRows(timeRange)) {
             // Match against query
-            String bookName = book.getBookName() != null ? book.getBookName().toLowerCase() : "";
-            String author = book.getAuthor() != null ? book.getAuthor().toLowerCase() : "";
+            String bookName = index.string(index.bookName(row));
+            String author = index.string(index.bookAuthor(row));
 
-            if (query.contains("book") || query.contains("reading") ||
-                    query.contains(bookName) || query.contains(author)) {
+            if (anyBook ||
+                    query.contains(bookName != null ? bookName.toLowerCase() : "") ||
+                    query.contains(author != null ? author.toLowerCase() : "")) {
 
-                String description = String.format("Book: %s", book.getBookName());
-                if (book.getAuthor() != null) {
-                    description += " by " + book.getAuthor();
+                String description = String.format("Book: %s", bookName);
+                if (author != null) {
+                    description += " by " + author;
                 }
 
                 matches.add(QueryMatch.builder()
                         .type("BOOK")
                         .description(description)
-                        .frameNumber(book.getFrameNumber())
-                        .timestamp(book.getTimestamp())
-                        .confidence(book.getConfidence())
-                        .aiContext(book.getAiSummary())
+                        .frameNumber(DetectionIndex.boxed(index.bookFrame(row)))
+                        .timestamp(DetectionIndex.boxed(index.bookTimestamp(row)))
+                        .confidence(DetectionIndex.boxed(index.bookConfidence(row)))
+                        .aiContext(index.string(index.bookSummary(row)))
                         .build());
             }
         }
@@ -259,6 +260,44 @@ public class QueryService {
         return matches;
     }
 
+    /**
+     * Keyword search over object names, categories, book titles, authors and OCR text,
+     * across the whole library or within one media file; results are grouped per media file
+     */
+    public List<KeywordSearchResult> searchKeywords(String query, Long mediaFileId) {
+        Map<Long, List<KeywordIndex.Hit>> hitsByFile = keywordIndex.search(query, mediaFileId).stream()
+                .collect(Collectors.groupingBy(KeywordIndex.Hit::mediaFileId));
+
+        Map<Long, String> fileNames = new HashMap<>();
+        mediaFileRepository.findAllById(hitsByFile.keySet())
+                .forEach(file -> fileNames.put(file.getId(), file.getFileName()));
+
+        return hitsByFile.entrySet().stream()
+                // Hits of deleted files may still be in the index until it is rebuilt
+                .filter(entry -> fileNames.containsKey(entry.getKey()))
+                .map(entry -> {
+                    List<KeywordIndex.Hit> hits = entry.getValue();
+                    DoubleSummaryStatistics times = hits.stream()
+                            .mapToDouble(KeywordIndex.Hit::timestamp)
+                            .filter(time -> !Double.isNaN(time))
+                            .summaryStatistics();
+                    return KeywordSearchResult.builder()
+                            .mediaFileId(entry.getKey())
+                            .fileName(fileNames.get(entry.getKey()))
+                            .objectMatches((int) hits.stream()
+                                    .filter(hit -> hit.type() == KeywordIndex.DetectionType.OBJECT).count())
+                            .bookMatches((int) hits.stream()
+                                    .filter(hit -> hit.type() == KeywordIndex.DetectionType.BOOK).count())
+                            .firstSeen(times.getCount() > 0 ? times.getMin() : null)
+                            .lastSeen(times.getCount() > 0 ? times.getMax() : null)
+                            .build();
+                })
+                .sorted(Comparator.comparing(KeywordSearchResult::getObjectMatches)
+                        .thenComparing(KeywordSearchResult::getBookMatches)
+                        .reversed())
+                .collect(Collectors.toList());
+    }
+
     /**
      * Get query history
      */
@@ -278,24 +317,21 @@ public class QueryService {
         MediaFile mediaFile = mediaFileRepository.findById(mediaFileId)
                 .orElseThrow(() -> new RuntimeException("Media file not found"));
 
-        MediaAnalysisResult context = buildMediaContext(mediaFile);
+        MediaAnalysisResult context = buildMediaContext(mediaFile, indexService.get(mediaFile));
         return aiService.generateQuerySuggestions(context);
     }
 
     // Helper methods
 
-    private MediaAnalysisResult buildMediaContext(MediaFile mediaFile) {
-        List<DetectedPerson> people = personRepository.findByMediaFileId(mediaFile.getId());
-        List<DetectedObject> objects = objectRepository.findByMediaFileId(mediaFile.getId());
-        List<DetectedBook> books = bookRepository.findByMediaFileId(mediaFile.getId());
-
+    private MediaAnalysisResult buildMediaContext(MediaFile mediaFile, DetectionIndex index) {
+        // Views over the index; rows are only materialized if read
         return MediaAnalysisResult.builder()
                 .mediaFileId(mediaFile.getId())
                 .fileName(mediaFile.getFileName())
                 .fileType(mediaFile.getFileType().name())
-                .detectedPeople(people.stream().map(this::convertToPersonInfo).toList())
-                .detectedObjects(objects.stream().map(this::convertToObjectInfo).toList())
-                .detectedBooks(books.stream().map(this::convertToBookInfo).toList())
+                .detectedPeople(index.people())
+                .detectedObjects(index.objects())
+                .detectedBooks(index.books())
                 .build();
     }
 
@@ -369,48 +405,4 @@ public class QueryService {
                 .filter(word -> word.length() > 2)
                 .toArray(String[]::new);
     }
-
-    // Conversion methods
-    private PersonInfo convertToPersonInfo(DetectedPerson person) {
-        return PersonInfo.builder()
-                .id(person.getId())
-                .uniqueId(person.getUniqueId())
-                .ageCategory(person.getAgeCategory().name())
-                .estimatedAge(person.getEstimatedAge())
-                .gender(person.getGender().name())
-                .confidence(person.getConfidence())
-                .emotionalState(person.getEmotionalState().name())
-                .frameNumber(person.getFrameNumber())
-                .timestamp(person.getTimestamp())
-                .aiDescription(person.getAiDescription())
-                .build();
-    }
-
-    private ObjectInfo convertToObjectInfo(DetectedObject object) {
-        return ObjectInfo.builder()
-                .id(object.getId())
-                .objectName(object.getObjectName())
-                .category(object.getCategory())
-                .confidence(object.getConfidence())
-                .frameNumber(object.getFrameNumber())
-                .timestamp(object.getTimestamp())
-                .aiDescription(object.getAiDescription())
-                .build();
-    }
-
-    private BookInfo convertToBookInfo(DetectedBook book) {
-        return BookInfo.builder()
-                .id(book.getId())
-                .bookName(book.getBookName())
-                .author(book.getAuthor())
-                .isbn(book.getIsbn())
-                .publisher(book.getPublisher())
-                .publicationYear(book.getPublicationYear())
-                .uniqueId(book.getUniqueId())
-                .confidence(book.getConfidence())
-                .frameNumber(book.getFrameNumber())
-                .timestamp(book.getTimestamp())
-                .aiSummary(book.getAiSummary())
-                .build();
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,239 @@
+package com.ithra.library.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for live stream frame analysis.
+ * Each stream may have at most {@code maxInFlightPerStream} frames being analyzed and
+ * all streams together at most {@code maxInFlight}. Frames beyond that wait in a small
+ * per-stream queue; when the queue is full the overload policy decides what is dropped.
+ * Dropped frames run their drop callback, so callers can fail the futures waiting on them.
+ */
+@Component
+@Slf4j
+public class StreamFrameScheduler {
+
+    public enum OverloadPolicy {
+        /** Drop the oldest queued frame in favour of the new one */
+        DROP_OLDEST,
+        /** Drop the incoming frame */
+        DROP_NEWEST,
+        /** Drop the incoming frame and halve the stream's sampling rate until it catches up */
+        REDUCE_RATE
+    }
+
+    private static final int MAX_RATE_DIVISOR = 16;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, StreamQueue> streams = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    private int globalInFlight;
+
+    @Value("${app.streaming.max-in-flight-frames:64}")
+    private int maxInFlight;
+
+    @Value("${app.streaming.max-in-flight-per-stream:4}")
+    private int maxInFlightPerStream;
+
+    @Value("${app.streaming.queue-capacity:8}")
+    private int queueCapacity;
+
+    @Value("${app.streaming.overload-policy:DROP_OLDEST}")
+    private OverloadPolicy overloadPolicy;
+
+    public StreamFrameScheduler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Create the frame queue of a stream and register its metrics
+     */
+    public StreamQueue register(String streamKey) {
+        StreamQueue stream = new StreamQueue(streamKey);
+        streams.put(streamKey, stream);
+        return stream;
+    }
+
+    /**
+     * Discard queued frames of a stream and remove its metrics; frames in flight still complete
+     */
+    public void unregister(String streamKey) {
+        StreamQueue stream = streams.remove(streamKey);
+        if (stream == null) {
+            return;
+        }
+        List<Task> discarded;
+        synchronized (lock) {
+            stream.closed = true;
+            discarded = new ArrayList<>(stream.queue);
+            stream.queue.clear();
+        }
+        discarded.forEach(Task::drop);
+        meterRegistry.remove(stream.depthGauge);
+        meterRegistry.remove(stream.droppedCounter);
+    }
+
+    /**
+     * Start as many queued frames as the limits allow, one per stream per round
+     */
+    private void dispatch() {
+        List<Runnable> ready = new ArrayList<>();
+        synchronized (lock) {
+            boolean progress = true;
+            while (progress && globalInFlight < maxInFlight) {
+                progress = false;
+                for (StreamQueue stream : streams.values()) {
+                    if (globalInFlight >= maxInFlight) {
+                        break;
+                    }
+                    if (stream.queue.isEmpty() || stream.inFlight >= maxInFlightPerStream) {
+                        continue;
+                    }
+                    Task task = stream.queue.pollFirst();
+                    stream.inFlight++;
+                    globalInFlight++;
+                    ready.add(() -> stream.run(task));
+                    progress = true;
+                }
+            }
+        }
+        // Tasks start outside the lock; completions re-enter dispatch()
+        ready.forEach(Runnable::run);
+    }
+
+    /**
+     * A queued frame analysis and what to do if it is dropped before it starts
+     */
+    private record Task(Supplier<CompletableFuture<?>> work, Runnable onDrop) {
+        void drop() {
+            try {
+                onDrop.run();
+            } catch (Exception e) {
+                log.warn("Drop callback failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Per-stream handle used by a stream processor to submit frames
+     */
+    public class StreamQueue {
+        private final String streamKey;
+        private final Deque<Task> queue = new ArrayDeque<>();
+        private final Gauge depthGauge;
+        private final Counter droppedCounter;
+        private int inFlight;
+        private boolean closed;
+        private volatile int rateDivisor = 1;
+
+        private StreamQueue(String streamKey) {
+            this.streamKey = streamKey;
+            this.depthGauge = Gauge.builder("library.streaming.queue.depth", this, StreamQueue::depth)
+                    .tag("stream", streamKey)
+                    .register(meterRegistry);
+            this.droppedCounter = Counter.builder("library.streaming.frames.dropped")
+                    .tag("stream", streamKey)
+                    .tag("policy", overloadPolicy.name())
+                    .register(meterRegistry);
+        }
+
+        /**
+         * Queue a frame analysis; the supplier is only invoked once the frame is admitted
+         */
+        public void submit(Supplier<CompletableFuture<?>> work) {
+            submit(work, () -> {
+            });
+        }
+
+        /**
+         * Queue a frame analysis; {@code onDrop} runs instead of it if the frame is dropped
+         * by the overload policy or discarded when the stream stops
+         */
+        public void submit(Supplier<CompletableFuture<?>> work, Runnable onDrop) {
+            Task task = new Task(work, onDrop);
+            Task dropped = null;
+            synchronized (lock) {
+                if (closed) {
+                    dropped = task;
+                } else if (queue.size() >= Math.max(1, queueCapacity)) {
+                    droppedCounter.increment();
+                    switch (overloadPolicy) {
+                        case DROP_OLDEST -> {
+                            dropped = queue.pollFirst();
+                            queue.addLast(task);
+                        }
+                        case DROP_NEWEST -> dropped = task;
+                        case REDUCE_RATE -> {
+                            dropped = task;
+                            if (rateDivisor < MAX_RATE_DIVISOR) {
+                                rateDivisor *= 2;
+                                log.info("Stream {} overloaded, sampling every {}x frame interval",
+                                        streamKey, rateDivisor);
+                            }
+                        }
+                    }
+                } else {
+                    queue.addLast(task);
+                }
+            }
+            if (dropped != null) {
+                dropped.drop();
+            }
+            dispatch();
+        }
+
+        /**
+         * Factor applied to the stream's frame interval; above 1 while REDUCE_RATE is throttling
+         */
+        public int getRateDivisor() {
+            return rateDivisor;
+        }
+
+        private void run(Task task) {
+            CompletableFuture<?> future;
+            try {
+                future = task.work().get();
+            } catch (Exception e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((result, error) -> {
+                if (error != null) {
+                    log.warn("Frame analysis failed for stream {}: {}", streamKey, error.getMessage());
+                }
+                complete();
+            });
+        }
+
+        private void complete() {
+            synchronized (lock) {
+                inFlight--;
+                globalInFlight--;
+                // Caught up again: restore the sampling rate step by step
+                if (queue.isEmpty() && rateDivisor > 1) {
+                    rateDivisor /= 2;
+                }
+            }
+            dispatch();
+        }
+
+        private double depth() {
+            synchronized (lock) {
+                return queue.size();
+            }
+        }
+    }
+}
@@ -6,80 +6,272 @@ import com.google.cloud.vision.v1.Feature.Type;
 import com.google.protobuf.ByteString;
 import com.ithra.library.dto.*;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class VisionAnalysisService {
 
-    private final ImageAnnotatorClient visionClient;
-    private final OpenAIService openAIService;
+    private static final Map<VisionFeatureProfile, List<Feature>> PROFILE_FEATURES =
+            new EnumMap<>(VisionFeatureProfile.class);
+
+    static {
+        PROFILE_FEATURES.put(VisionFeatureProfile.OCCUPANCY,
+                features(Type.FACE_DETECTION, Type.OBJECT_LOCALIZATION));
+        PROFILE_FEATURES.put(VisionFeatureProfile.BOOKS,
+                features(Type.OBJECT_LOCALIZATION, Type.TEXT_DETECTION));
+        PROFILE_FEATURES.put(VisionFeatureProfile.STANDARD,
+                features(Type.FACE_DETECTION, Type.OBJECT_LOCALIZATION, Type.LABEL_DETECTION,
+                        Type.TEXT_DETECTION));
+        PROFILE_FEATURES.put(VisionFeatureProfile.FULL,
+                features(Type.FACE_DETECTION, Type.OBJECT_LOCALIZATION, Type.LABEL_DETECTION,
+                        Type.TEXT_DETECTION, Type.LOGO_DETECTION, Type.LANDMARK_DETECTION,
+                        Type.IMAGE_PROPERTIES));
+        PROFILE_FEATURES.put(VisionFeatureProfile.ADAPTIVE,
+                features(Type.FACE_DETECTION, Type.OBJECT_LOCALIZATION, Type.LABEL_DETECTION));
+    }
+
+    // Follow-up request of the ADAPTIVE profile
+    private static final List<Feature> TEXT_FEATURES = features(Type.TEXT_DETECTION);
 
-    public VisionAnalysisService(ImageAnnotatorClient visionClient,
-                                         OpenAIService openAIService) {
-        this.visionClient = visionClient;
+    private final VisionDetector detector;
+    private final OpenAIService openAIService;
+    private final VisionBatchAnalyzer batchAnalyzer;
+    private final FrameAnalysisCache analysisCache;
+    private final Executor visionExecutor;
+    private final CallLimiter visionCallLimiter;
+
+    @Value("${app.vision.feature-profile:STANDARD}")
+    private VisionFeatureProfile defaultProfile;
+
+    public VisionAnalysisService(VisionDetector detector,
+                                         OpenAIService openAIService,
+                                         VisionBatchAnalyzer batchAnalyzer,
+                                         FrameAnalysisCache analysisCache,
+                                         @Qualifier("visionExecutor") Executor visionExecutor,
+                                         @Qualifier("visionCallLimiter") CallLimiter visionCallLimiter) {
+        this.detector = detector;
         this.openAIService = openAIService;
+        this.batchAnalyzer = batchAnalyzer;
+        this.analysisCache = analysisCache;
+        this.visionExecutor = visionExecutor;
+        this.visionCallLimiter = visionCallLimiter;
     }
 
     /**
-     * Comprehensive image analysis with all detection types
+     * Image analysis with the features of the given profile (null = configured default)
      */
     @Async
-    public CompletableFuture<FrameAnalysisResult> analyzeFrame(byte[] imageBytes,
+    public CompletableFuture<FrameAnalysisResult> analyzeFrame(ByteString image,
                                                                Integer frameNumber,
-                                                               Double timestamp) {
+                                                               Double timestamp,
+                                                               VisionFeatureProfile profile) {
         try {
-            ByteString imgBytes = ByteString.copyFrom(imageBytes);
-            Image img = Image.newBuilder().setContent(imgBytes).build();
-
-            // Build comprehensive request with all features
-            List<Feature> features = Arrays.asList(
-                    Feature.newBuilder().setType(Type.FACE_DETECTION).build(),
-                    Feature.newBuilder().setType(Type.OBJECT_LOCALIZATION).build(),
-                    Feature.newBuilder().setType(Type.LABEL_DETECTION).build(),
-                    Feature.newBuilder().setType(Type.TEXT_DETECTION).build(),
-                    Feature.newBuilder().setType(Type.LOGO_DETECTION).build(),
-                    Feature.newBuilder().setType(Type.LANDMARK_DETECTION).build(),
-                    Feature.newBuilder().setType(Type.IMAGE_PROPERTIES).build()
-            );
-
-            AnnotateImageRequest request = AnnotateImageRequest.newBuilder()
-                    .addAllFeatures(features)
-                    .setImage(img)
-                    .build();
+            VisionFeatureProfile resolved = resolve(profile);
+            String cacheKey = cacheKey(image, resolved);
+            FrameAnalysisResult cached = lookup(cacheKey, frameNumber, timestamp);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+
+            AnnotateImageResponse imageResponse = annotate(buildRequest(image, PROFILE_FEATURES.get(resolved)));
+            if (needsText(resolved, imageResponse)) {
+                imageResponse = withText(imageResponse, annotate(buildRequest(image, TEXT_FEATURES)));
+            }
+
+            return CompletableFuture.completedFuture(
+                    buildAndCache(cacheKey, imageResponse, frameNumber, timestamp, 1.0));
 
-            BatchAnnotateImagesResponse response = visionClient
-                    .batchAnnotateImages(Collections.singletonList(request));
-            AnnotateImageResponse imageResponse = response.getResponsesList().get(0);
+        } catch (Exception e) {
+            log.error("Error analyzing frame", e);
+            return CompletableFuture.completedFuture(emptyResult(frameNumber, timestamp));
+        }
+    }
 
-            if (imageResponse.hasError()) {
-                log.error("Vision API error: {}", imageResponse.getError().getMessage());
-                return CompletableFuture.completedFuture(new FrameAnalysisResult());
+    /**
+     * Analyze a frame through the shared micro-batcher.
+     * The returned future completes once the batch containing this frame
+     * has been answered; detection post-processing runs on the vision executor.
+     * Failed Vision calls yield an empty frame; a rejected post-processing task fails the future.
+     * Boxes are mapped back to source frame pixels with the frame's encoding scale.
+     */
+    public CompletableFuture<FrameAnalysisResult> analyzeFrameBatched(FrameEncoder.EncodedFrame frame,
+                                                                      Integer frameNumber,
+                                                                      Double timestamp,
+                                                                      VisionFeatureProfile profile) {
+        ByteString image = frame.image();
+        try {
+            VisionFeatureProfile resolved = resolve(profile);
+            String cacheKey = cacheKey(image, resolved, frame.scale());
+            FrameAnalysisResult cached = lookup(cacheKey, frameNumber, timestamp);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
             }
 
-            // Process all detections
-            FrameAnalysisResult result = new FrameAnalysisResult();
-            result.setFrameNumber(frameNumber);
-            result.setTimestamp(timestamp);
+            return batchAnalyzer.submit(buildRequest(image, PROFILE_FEATURES.get(resolved)))
+                    .thenCompose(response -> needsText(resolved, response)
+                            ? batchAnalyzer.submit(buildRequest(image, TEXT_FEATURES))
+                                    .thenApply(text -> withText(response, text))
+                            : CompletableFuture.completedFuture(response))
+                    .thenApplyAsync(response -> buildAndCache(cacheKey, response, frameNumber, timestamp,
+                                    frame.scale()), visionExecutor)
+                    .exceptionally(e -> {
+                        if (e instanceof RejectedExecutionException
+                                || e.getCause() instanceof RejectedExecutionException) {
+                            throw e instanceof CompletionException ce ? ce : new CompletionException(e);
+                        }
+                        log.error("Error analyzing frame {}", frameNumber, e);
+                        return emptyResult(frameNumber, timestamp);
+                    });
+        } catch (Exception e) {
+            log.error("Error analyzing frame {}", frameNumber, e);
+            return CompletableFuture.completedFuture(emptyResult(frameNumber, timestamp));
+        }
+    }
+
+    private AnnotateImageResponse annotate(AnnotateImageRequest request) {
+        return visionCallLimiter.call(() -> detector.annotate(Collections.singletonList(request))).get(0);
+    }
 
-            result.setPeople(detectPeople(imageResponse, frameNumber, timestamp));
-            result.setObjects(detectObjects(imageResponse, frameNumber, timestamp));
-            result.setBooks(detectBooks(imageResponse, frameNumber, timestamp));
+    private AnnotateImageRequest buildRequest(ByteString image, List<Feature> features) {
+        Image img = Image.newBuilder().setContent(image).build();
 
-            log.info("Frame {} analyzed: {} people, {} objects, {} books",
-                    frameNumber, result.getPeople().size(),
-                    result.getObjects().size(), result.getBooks().size());
+        return AnnotateImageRequest.newBuilder()
+                .addAllFeatures(features)
+                .setImage(img)
+                .build();
+    }
 
-            return CompletableFuture.completedFuture(result);
+    private VisionFeatureProfile resolve(VisionFeatureProfile profile) {
+        return profile != null ? profile : defaultProfile;
+    }
 
-        } catch (Exception e) {
-            log.error("Error analyzing frame", e);
-            return CompletableFuture.completedFuture(new FrameAnalysisResult());
+    /**
+     * ADAPTIVE profile: OCR is only worth a second call when a book-like object was localized
+     */
+    private boolean needsText(VisionFeatureProfile profile, AnnotateImageResponse response) {
+        return profile == VisionFeatureProfile.ADAPTIVE
+                && !response.hasError()
+                && response.getLocalizedObjectAnnotationsList().stream()
+                        .anyMatch(obj -> "BOOK".equals(categorizeObject(obj.getName())));
+    }
+
+    private AnnotateImageResponse withText(AnnotateImageResponse response, AnnotateImageResponse text) {
+        if (text.hasError()) {
+            log.warn("Vision text detection failed: {}", text.getError().getMessage());
+            return response;
+        }
+        return response.toBuilder()
+                .addAllTextAnnotations(text.getTextAnnotationsList())
+                .build();
+    }
+
+    private String cacheKey(ByteString image, VisionFeatureProfile profile) {
+        return cacheKey(image, profile, 1.0);
+    }
+
+    /**
+     * Cached boxes are in source pixels, so downscaled frames are keyed by their scale too
+     */
+    private String cacheKey(ByteString image, VisionFeatureProfile profile, double scale) {
+        if (!analysisCache.isEnabled()) {
+            return null;
+        }
+        return analysisCache.key(image, scale == 1.0 ? profile.name() : profile.name() + "@" + scale);
+    }
+
+    private static List<Feature> features(Type... types) {
+        return Arrays.stream(types)
+                .map(type -> Feature.newBuilder().setType(type).build())
+                .collect(Collectors.toList());
+    }
+
+    private FrameAnalysisResult lookup(String cacheKey, Integer frameNumber, Double timestamp) {
+        if (cacheKey == null) {
+            return null;
         }
+        FrameAnalysisResult cached = analysisCache.get(cacheKey);
+        return cached != null ? retarget(cached, frameNumber, timestamp) : null;
+    }
+
+    private FrameAnalysisResult buildAndCache(String cacheKey,
+                                              AnnotateImageResponse imageResponse,
+                                              Integer frameNumber,
+                                              Double timestamp,
+                                              double scale) {
+        FrameAnalysisResult result = buildResult(imageResponse, frameNumber, timestamp, scale);
+
+        // Error responses are not cached so the frame is retried next time
+        if (cacheKey != null && !imageResponse.hasError()) {
+            analysisCache.put(cacheKey, retarget(result, frameNumber, timestamp));
+        }
+        return result;
+    }
+
+    private FrameAnalysisResult buildResult(AnnotateImageResponse imageResponse,
+                                            Integer frameNumber,
+                                            Double timestamp,
+                                            double scale) {
+        if (imageResponse.hasError()) {
+            log.error("Vision API error: {}", imageResponse.getError().getMessage());
+            return emptyResult(frameNumber, timestamp);
+        }
+
+        // Process all detections
+        FrameAnalysisResult result = new FrameAnalysisResult();
+        result.setFrameNumber(frameNumber);
+        result.setTimestamp(timestamp);
+
+        result.setPeople(detectPeople(imageResponse, frameNumber, timestamp, scale));
+        result.setObjects(detectObjects(imageResponse, frameNumber, timestamp, scale));
+        result.setBooks(detectBooks(imageResponse, frameNumber, timestamp));
+
+        log.info("Frame {} analyzed: {} people, {} objects, {} books",
+                frameNumber, result.getPeople().size(),
+                result.getObjects().size(), result.getBooks().size());
+
+        return result;
+    }
+
+    /**
+     * Copy an analysis result onto another frame, e.g. for a near-duplicate frame
+     * that was not sent to Vision. Detections keep their ids.
+     */
+    public static FrameAnalysisResult retarget(FrameAnalysisResult source,
+                                               Integer frameNumber,
+                                               Double timestamp) {
+        return FrameAnalysisResult.builder()
+                .frameNumber(frameNumber)
+                .timestamp(timestamp)
+                .people(source.getPeople().stream()
+                        .map(p -> p.toBuilder().frameNumber(frameNumber).timestamp(timestamp).build())
+                        .collect(Collectors.toList()))
+                .objects(source.getObjects().stream()
+                        .map(o -> o.toBuilder().frameNumber(frameNumber).timestamp(timestamp).build())
+                        .collect(Collectors.toList()))
+                .books(source.getBooks().stream()
+                        .map(b -> b.toBuilder().frameNumber(frameNumber).timestamp(timestamp).build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private static FrameAnalysisResult emptyResult(Integer frameNumber, Double timestamp) {
+        return FrameAnalysisResult.builder()
+                .frameNumber(frameNumber)
+                .timestamp(timestamp)
+                .people(new ArrayList<>())
+                .objects(new ArrayList<>())
+                .books(new ArrayList<>())
+                .build();
     }
 
     /**
@@ -87,7 +279,8 @@ public class VisionAnalysisService {
      */
     private List<PersonInfo> detectPeople(AnnotateImageResponse response,
                                           Integer frameNumber,
-                                          Double timestamp) {
+                                          Double timestamp,
+                                          double scale) {
         List<PersonInfo> people = new ArrayList<>();
 
         for (FaceAnnotation face : response.getFaceAnnotationsList()) {
@@ -100,24 +293,11 @@ public class VisionAnalysisService {
                     .estimatedAge(estimateAge(face))
                     .gender(estimateGender(face))
                     .emotionalState(detectEmotion(face))
-                    .boundingBox(convertBoundingBox(face.getBoundingPoly()))
+                    .boundingBox(convertBoundingBox(face.getBoundingPoly(), scale))
+                    // Filled in after saving by EntityEnrichmentService
+                    .aiDescription(EntityEnrichmentService.PENDING_DESCRIPTION)
                     .build();
 
-            // Generate AI description
-            try {
-                Map<String, Object> personData = new HashMap<>();
-                personData.put("age", person.getEstimatedAge());
-                personData.put("emotion", person.getEmotionalState());
-                personData.put("gender", person.getGender());
-
-                String description = openAIService.generateEntityDescription(
-                        "person", personData
-                );
-                person.setAiDescription(description);
-            } catch (Exception e) {
-                log.warn("Failed to generate AI description for person", e);
-            }
-
             people.add(person);
         }
 
@@ -129,7 +309,8 @@ public class VisionAnalysisService {
      */
     private List<ObjectInfo> detectObjects(AnnotateImageResponse response,
                                            Integer frameNumber,
-                                           Double timestamp) {
+                                           Double timestamp,
+                                           double scale) {
         List<ObjectInfo> objects = new ArrayList<>();
 
         // Process localized objects
@@ -140,7 +321,7 @@ public class VisionAnalysisService {
                     .confidence((double) obj.getScore())
                     .frameNumber(frameNumber)
                     .timestamp(timestamp)
-                    .boundingBox(convertBoundingBox(obj.getBoundingPoly()))
+                    .boundingBox(convertBoundingBox(obj.getBoundingPoly(), scale))
                     .build();
 
             objects.add(objectInfo);
@@ -353,7 +534,11 @@ public class VisionAnalysisService {
         return null;
     }
 
-    private BoundingBox convertBoundingBox(BoundingPoly poly) {
+    /**
+     * Box of a polygon in source frame pixels. Vertices are in pixels of the image sent to
+     * Vision, which FrameEncoder may have downscaled by {@code scale}.
+     */
+    private BoundingBox convertBoundingBox(BoundingPoly poly, double scale) {
         if (poly.getVerticesCount() == 0) {
             return null;
         }
@@ -366,10 +551,10 @@ public class VisionAnalysisService {
         int maxY = vertices.stream().mapToInt(Vertex::getY).max().orElse(0);
 
         return BoundingBox.builder()
-                .x((double) minX)
-                .y((double) minY)
-                .width((double) (maxX - minX))
-                .height((double) (maxY - minY))
+                .x(minX / scale)
+                .y(minY / scale)
+                .width((maxX - minX) / scale)
+                .height((maxY - minY) / scale)
                 .build();
     }
 }
@@ -0,0 +1,162 @@
+package com.ithra.library.service;
+
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects single-image Vision requests from all callers into micro-batches
+ * and sends them to the vision backend in one call.
+ * A batch is flushed when it reaches {@code maxBatchSize} or when the oldest
+ * request has waited {@code maxWaitMs}, whichever comes first.
+ */
+@Component
+@Slf4j
+public class VisionBatchAnalyzer {
+
+    /** Hard limit of images per batchAnnotateImages call imposed by the Vision API */
+    private static final int VISION_MAX_BATCH_SIZE = 16;
+
+    private final VisionDetector detector;
+    private final Executor visionExecutor;
+    private final CallLimiter visionCallLimiter;
+    private final BlockingQueue<PendingRequest> queue = new LinkedBlockingQueue<>();
+
+    @Value("${app.vision.batch.max-size:16}")
+    private int maxBatchSize;
+
+    @Value("${app.vision.batch.max-wait-ms:250}")
+    private long maxWaitMs;
+
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public VisionBatchAnalyzer(VisionDetector detector,
+                               @Qualifier("visionExecutor") Executor visionExecutor,
+                               @Qualifier("visionCallLimiter") CallLimiter visionCallLimiter) {
+        this.detector = detector;
+        this.visionExecutor = visionExecutor;
+        this.visionCallLimiter = visionCallLimiter;
+    }
+
+    @PostConstruct
+    public void start() {
+        maxBatchSize = Math.max(1, Math.min(maxBatchSize, VISION_MAX_BATCH_SIZE));
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "VisionBatchDispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        log.info("Vision batch analyzer started (max {} images, max wait {} ms)",
+                maxBatchSize, maxWaitMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+
+        List<PendingRequest> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(pending -> pending.future.completeExceptionally(
+                new IllegalStateException("Vision batch analyzer stopped")));
+    }
+
+    /**
+     * Queue a request for the next batch
+     */
+    public CompletableFuture<AnnotateImageResponse> submit(AnnotateImageRequest request) {
+        PendingRequest pending = new PendingRequest(request);
+        if (!running) {
+            pending.future.completeExceptionally(
+                    new IllegalStateException("Vision batch analyzer is not running"));
+            return pending.future;
+        }
+        queue.add(pending);
+        return pending.future;
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                PendingRequest first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                List<PendingRequest> batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingRequest next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                // Send on the vision executor so the next batch can be gathered meanwhile;
+                // when it is saturated the batch is sent from this thread
+                visionExecutor.execute(() -> send(batch));
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("Error in Vision batch dispatcher", e);
+            }
+        }
+    }
+
+    private void send(List<PendingRequest> batch) {
+        try {
+            List<AnnotateImageRequest> requests = batch.stream()
+                    .map(pending -> pending.request)
+                    .toList();
+
+            List<AnnotateImageResponse> responses = visionCallLimiter.call(() -> detector.annotate(requests));
+
+            log.debug("Vision batch of {} images completed", batch.size());
+
+            for (int i = 0; i < batch.size(); i++) {
+                if (i < responses.size()) {
+                    batch.get(i).future.complete(responses.get(i));
+                } else {
+                    batch.get(i).future.completeExceptionally(
+                            new IllegalStateException("Missing response in Vision batch"));
+                }
+            }
+        } catch (Exception e) {
+            log.error("Vision batch of {} images failed", batch.size(), e);
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        }
+    }
+
+    private static class PendingRequest {
+        private final AnnotateImageRequest request;
+        private final CompletableFuture<AnnotateImageResponse> future = new CompletableFuture<>();
+
+        PendingRequest(AnnotateImageRequest request) {
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.ithra.library.service;
+
+import com.google.cloud.vision.v1.AnnotateImageRequest;
+import com.google.cloud.vision.v1.AnnotateImageResponse;
+
+import java.util.List;
+
+/**
+ * Backend that annotates images for {@link VisionAnalysisService}.
+ * Requests and responses use the Google Vision message types, so every backend
+ * feeds the same detection post-processing, caching and batching.
+ * The backend is chosen with app.vision.backend (cloud, opencv or fake).
+ */
+public interface VisionDetector {
+
+    /**
+     * Annotate a batch of images with the features of each request; responses are in request order
+     */
+    List<AnnotateImageResponse> annotate(List<AnnotateImageRequest> requests);
+}
@@ -0,0 +1,113 @@
+package com.ithra.library.config;
+
+import com.ithra.library.dto.DecodeStrategy;
+import com.ithra.library.service.FrameEncoder;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Java2DFrameConverter;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares decode strategies on a generated 2 minute 720p video.
+ * Run with: ./mvnw test -Dtest=VideoDecodeBenchmarkTests -Dbenchmark.decode=true
+ */
+@EnabledIfSystemProperty(named = "benchmark.decode", matches = "true")
+class VideoDecodeBenchmarkTests {
+
+    private static final Logger log = LoggerFactory.getLogger(VideoDecodeBenchmarkTests.class);
+
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+    private static final int FRAME_RATE = 30;
+    private static final int GOP_SIZE = 60;
+    private static final int FRAMES = FRAME_RATE * 120;
+    private static final int ROUNDS = 3;
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path video;
+
+    @BeforeAll
+    static void generateVideo() throws Exception {
+        video = tempDir.resolve("synthetic.mp4");
+
+        try (FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(video.toFile(), WIDTH, HEIGHT)) {
+            recorder.setFormat("mp4");
+            recorder.setVideoCodec(avcodec.AV_CODEC_ID_MPEG4);
+            recorder.setFrameRate(FRAME_RATE);
+            recorder.setGopSize(GOP_SIZE);
+            recorder.setVideoBitrate(4_000_000);
+            recorder.start();
+
+            Java2DFrameConverter converter = new Java2DFrameConverter();
+            BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+            for (int i = 0; i < FRAMES; i++) {
+                // Static background with a moving block and a scene change every 10 seconds
+                Graphics2D g = image.createGraphics();
+                g.setColor((i / (FRAME_RATE * 10)) % 2 == 0 ? Color.DARK_GRAY : Color.LIGHT_GRAY);
+                g.fillRect(0, 0, WIDTH, HEIGHT);
+                g.setColor(Color.ORANGE);
+                g.fillRect((i * 7) % (WIDTH - 200), HEIGHT / 3, 200, 200);
+                g.dispose();
+                recorder.record(converter.convert(image));
+            }
+        }
+    }
+
+    @Test
+    void compareDecodeStrategies() {
+        VideoProcessingService service = newService();
+
+        for (DecodeStrategy strategy : DecodeStrategy.values()) {
+            // Warm up the native libraries and the file cache
+            count(service, strategy);
+
+            long best = Long.MAX_VALUE;
+            long frames = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                frames = count(service, strategy);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+
+            log.info("{}: {} frames in {} ms", strategy, frames, String.format("%.1f", best / 1_000_000d));
+            assertThat(frames).isPositive();
+        }
+    }
+
+    private long count(VideoProcessingService service, DecodeStrategy strategy) {
+        try (Stream<VideoProcessingService.VideoFrame> frames =
+                     service.streamFrames(video.toString(), strategy)) {
+            return frames.count();
+        }
+    }
+
+    private VideoProcessingService newService() {
+        VideoProcessingService service = new VideoProcessingService(new FrameEncoder(1280, 0.85f));
+        ReflectionTestUtils.setField(service, "frameInterval", FRAME_RATE);
+        ReflectionTestUtils.setField(service, "dedupEnabled", true);
+        ReflectionTestUtils.setField(service, "dedupMaxDistance", 3);
+        // Fixed interval so every strategy samples the same points
+        ReflectionTestUtils.setField(service, "adaptiveEnabled", false);
+        ReflectionTestUtils.setField(service, "defaultDecodeStrategy", DecodeStrategy.SEQUENTIAL);
+        ReflectionTestUtils.setField(service, "segmentMinFrames", FRAME_RATE * 20);
+        // Production default of app.frame.segments.buffer-size
+        ReflectionTestUtils.setField(service, "segmentBufferSize", 16);
+        return service;
+    }
+}
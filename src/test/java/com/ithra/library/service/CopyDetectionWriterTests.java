@@ -0,0 +1,127 @@
+package com.ithra.library.service;
+
+import com.ithra.library.entity.DetectedBook;
+import com.ithra.library.entity.DetectedObject;
+import com.ithra.library.entity.DetectedPerson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against a local PostgreSQL, e.g.
+ * COPY_WRITER_TEST_URL=jdbc:postgresql://localhost:5432/mydb?user=postgres&password=password
+ * The tables are created in a throwaway schema that is dropped afterwards.
+ */
+@EnabledIfEnvironmentVariable(named = "COPY_WRITER_TEST_URL", matches = ".+")
+class CopyDetectionWriterTests {
+
+    private static final String SCHEMA = "copy_writer_test";
+
+    private JdbcTemplate jdbcTemplate;
+    private CopyDetectionWriter writer;
+
+    @BeforeEach
+    void createSchema() {
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setUrl(System.getenv("COPY_WRITER_TEST_URL"));
+        dataSource.setCurrentSchema(SCHEMA);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+        jdbcTemplate.execute("CREATE SEQUENCE detected_persons_seq START 1 INCREMENT 50");
+        jdbcTemplate.execute("CREATE SEQUENCE detected_objects_seq START 1 INCREMENT 50");
+        jdbcTemplate.execute("CREATE SEQUENCE detected_books_seq START 1 INCREMENT 50");
+        jdbcTemplate.execute("CREATE TABLE detected_persons (id bigint PRIMARY KEY, " +
+                "media_file_id bigint NOT NULL, unique_id varchar(255), age_category varchar(255), " +
+                "estimated_age integer, gender varchar(255), confidence float8, " +
+                "emotional_state varchar(255), frame_number integer, timestamp float8, " +
+                "facial_landmarks varchar(255), bounding_boxx float8, bounding_boxy float8, " +
+                "bounding_box_width float8, bounding_box_height float8, ai_description text, " +
+                "detected_at timestamp(6))");
+        jdbcTemplate.execute("CREATE TABLE detected_objects (id bigint PRIMARY KEY, " +
+                "media_file_id bigint NOT NULL, object_name varchar(255), category varchar(255), " +
+                "confidence float8, frame_number integer, timestamp float8, bounding_boxx float8, " +
+                "bounding_boxy float8, bounding_box_width float8, bounding_box_height float8, " +
+                "ai_description text, detected_at timestamp(6))");
+        jdbcTemplate.execute("CREATE TABLE detected_books (id bigint PRIMARY KEY, " +
+                "media_file_id bigint NOT NULL, book_name varchar(255), author varchar(255), " +
+                "isbn varchar(255), publisher varchar(255), publication_year varchar(255), " +
+                "unique_id varchar(255), confidence float8, frame_number integer, timestamp float8, " +
+                "extracted_text text, ai_summary text, detected_at timestamp(6))");
+
+        writer = new CopyDetectionWriter(dataSource);
+    }
+
+    @AfterEach
+    void dropSchema() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+    }
+
+    @Test
+    void copiesAllRowsWithUniqueIds() {
+        List<DetectedObject> objects = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            objects.add(DetectedObject.builder()
+                    .objectName("Chair")
+                    .category("FURNITURE")
+                    .confidence(0.9)
+                    .frameNumber(i)
+                    .timestamp(i / 30.0)
+                    .build());
+        }
+
+        writer.write(7L, List.of(), objects, List.of());
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM detected_objects WHERE media_file_id = 7", Long.class))
+                .isEqualTo(120L);
+        assertThat(new HashSet<>(objects.stream().map(DetectedObject::getId).toList())).hasSize(120);
+        assertThat(objects).allSatisfy(object -> assertThat(object.getDetectedAt()).isNotNull());
+    }
+
+    @Test
+    void preservesNullsAndQuotedText() {
+        DetectedPerson person = DetectedPerson.builder()
+                .ageCategory(DetectedPerson.AgeCategory.ADULT)
+                .estimatedAge(30)
+                .gender(DetectedPerson.Gender.UNKNOWN)
+                .emotionalState(DetectedPerson.EmotionalState.HAPPY)
+                .confidence(0.75)
+                .frameNumber(3)
+                .timestamp(0.1)
+                .aiDescription(EntityEnrichmentService.PENDING_DESCRIPTION)
+                .build();
+        DetectedBook book = DetectedBook.builder()
+                .bookName("Dune, \"Deluxe\"\nEdition")
+                .author("")
+                .confidence(0.8)
+                .frameNumber(3)
+                .timestamp(0.1)
+                .build();
+
+        writer.write(9L, List.of(person), List.of(), List.of(book));
+
+        Map<String, Object> personRow = jdbcTemplate.queryForMap(
+                "SELECT * FROM detected_persons WHERE id = ?", person.getId());
+        assertThat(personRow.get("age_category")).isEqualTo("ADULT");
+        assertThat(personRow.get("unique_id")).isNull();
+        assertThat(personRow.get("ai_description")).isEqualTo(EntityEnrichmentService.PENDING_DESCRIPTION);
+
+        Map<String, Object> bookRow = jdbcTemplate.queryForMap(
+                "SELECT * FROM detected_books WHERE id = ?", book.getId());
+        assertThat(bookRow.get("book_name")).isEqualTo("Dune, \"Deluxe\"\nEdition");
+        assertThat(bookRow.get("author")).isEqualTo("");
+        assertThat(bookRow.get("isbn")).isNull();
+    }
+}
@@ -0,0 +1,83 @@
+package com.ithra.library.service;
+
+import com.ithra.library.dto.TimeRange;
+import com.ithra.library.entity.DetectedObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DetectionIndexTests {
+
+    // Sorted by timestamp: rows 0-2 at 1, 2 and 3 s, rows 3 and 4 untimed
+    private final DetectionIndex index = DetectionIndex.of(List.of(), List.of(
+            object(1L, "Cup", "KITCHEN", 3.0),
+            object(2L, "cup", "KITCHEN", 1.0),
+            object(3L, "Laptop", "ELECTRONICS", null),
+            object(4L, "Mug", "Kitchen", 2.0),
+            object(5L, "Laptop", null, null)), List.of());
+
+    @Test
+    void rowsAreOrderedByTimestampWithUntimedLast() {
+        assertThat(index.objectRows(null)).containsExactly(0, 1, 2, 3, 4);
+        assertThat(timestamps(index.objectRows(null))).containsExactly(1.0, 2.0, 3.0, Double.NaN, Double.NaN);
+    }
+
+    @Test
+    void windowKeepsUntimedTail() {
+        assertThat(index.objectRows(range(1.5, 3.0))).containsExactly(1, 2, 3, 4);
+        assertThat(index.objectRows(range(1.0, 1.0))).containsExactly(0, 3, 4);
+    }
+
+    @Test
+    void openEndedRanges() {
+        assertThat(index.objectRows(range(2.0, null))).containsExactly(1, 2, 3, 4);
+        assertThat(index.objectRows(range(null, 2.0))).containsExactly(0, 1, 3, 4);
+        assertThat(index.objectRows(range(null, null))).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void emptyWindowReturnsOnlyUntimedRows() {
+        assertThat(index.objectRows(range(1.2, 1.8))).containsExactly(3, 4);
+        assertThat(index.objectRows(range(10.0, 20.0))).containsExactly(3, 4);
+        assertThat(index.objectRows(range(-5.0, -1.0))).containsExactly(3, 4);
+        assertThat(index.personRows(range(0.0, 10.0))).isEmpty();
+    }
+
+    @Test
+    void objectNamesAndCategoriesHaveTheirOwnLowerCasedDictionaries() {
+        assertThat(index.objectNameDictionarySize()).isEqualTo(4);
+        assertThat(index.objectCategoryDictionarySize()).isEqualTo(3);
+
+        int mug = index.objectName(1);
+        assertThat(index.objectNameString(mug)).isEqualTo("Mug");
+        assertThat(index.objectNameLowerCase(mug)).isEqualTo("mug");
+        assertThat(index.objectCategoryLowerCase(index.objectCategory(1))).isEqualTo("kitchen");
+        assertThat(index.objectCategory(4)).isEqualTo(-1);
+        assertThat(index.objects().get(1).getCategory()).isEqualTo("Kitchen");
+    }
+
+    private List<Double> timestamps(int[] rows) {
+        List<Double> timestamps = new ArrayList<>();
+        for (int row : rows) {
+            timestamps.add(index.objectTimestamp(row));
+        }
+        return timestamps;
+    }
+
+    private static TimeRange range(Double start, Double end) {
+        return TimeRange.builder().startTime(start).endTime(end).build();
+    }
+
+    private static DetectedObject object(Long id, String name, String category, Double timestamp) {
+        return DetectedObject.builder()
+                .id(id)
+                .objectName(name)
+                .category(category)
+                .confidence(0.9)
+                .timestamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,120 @@
+package com.ithra.library.service;
+
+import com.ithra.library.dto.BookInfo;
+import com.ithra.library.dto.BoundingBox;
+import com.ithra.library.dto.FrameAnalysisResult;
+import com.ithra.library.dto.PersonInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DetectionTrackerTests {
+
+    private final DetectionTracker tracker = new DetectionTracker(true, 0.3, 3);
+
+    @Test
+    void keepsIdAcrossSparseSamples() {
+        // A walking person analyzed every 4 s, as the adaptive sampler does for a quiet scene
+        String first = track(frame(0.0, person(100, 100))).get(0);
+        String second = track(frame(4.0, person(110, 100))).get(0);
+        String third = track(frame(8.0, person(120, 100))).get(0);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(third).isEqualTo(first);
+    }
+
+    @Test
+    void crossingPeopleKeepTheirIds() {
+        List<String> ids = track(frame(0.0, person(0, 0), person(400, 60)));
+        List<String> last = ids;
+        for (int t = 1; t <= 10; t++) {
+            // Walking towards each other, passing at t = 5, in alternating detection order
+            PersonInfo right = person(40 * t, 0);
+            PersonInfo left = person(400 - 40 * t, 60);
+            last = t % 2 == 0
+                    ? track(frame(t, right, left))
+                    : reversed(track(frame(t, left, right)));
+        }
+
+        assertThat(last).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    void splitDetectionStartsNewTrack() {
+        String id = track(frame(0.0, person(100, 100))).get(0);
+        List<String> split = track(frame(1.0, person(100, 100), person(160, 100)));
+
+        assertThat(split.get(0)).isEqualTo(id);
+        assertThat(split.get(1)).isNotEqualTo(id);
+        assertThat(tracker.getActiveTracks()).isEqualTo(2);
+    }
+
+    @Test
+    void tracksExpireAfterMissedFrames() {
+        String id = track(frame(0.0, person(100, 100))).get(0);
+        for (int t = 1; t <= 3; t++) {
+            track(frame(t));
+        }
+        assertThat(track(frame(4.0, person(100, 100))).get(0)).isEqualTo(id);
+
+        for (int t = 5; t <= 8; t++) {
+            track(frame(t));
+        }
+        assertThat(tracker.getActiveTracks()).isZero();
+        assertThat(track(frame(9.0, person(100, 100))).get(0)).isNotEqualTo(id);
+    }
+
+    @Test
+    void matchesBooksByIsbnThenTitle() {
+        FrameAnalysisResult first = tracker.assign(books(0.0,
+                book("978-0747532699", "Harry Potter"), book(null, "The Hobbit")));
+        FrameAnalysisResult second = tracker.assign(books(1.0,
+                book("978-0747532699", "HARRY POTTER AND THE PHILOSOPHER'S STONE"),
+                book(null, "  the hobbit "), book("978-0261103344", "The Hobbit")));
+
+        assertThat(second.getBooks().get(0).getUniqueId()).isEqualTo(first.getBooks().get(0).getUniqueId());
+        assertThat(second.getBooks().get(1).getUniqueId()).isEqualTo(first.getBooks().get(1).getUniqueId());
+        assertThat(second.getBooks().get(2).getUniqueId())
+                .isNotEqualTo(first.getBooks().get(1).getUniqueId());
+    }
+
+    private List<String> track(FrameAnalysisResult frame) {
+        return tracker.assign(frame).getPeople().stream().map(PersonInfo::getUniqueId).toList();
+    }
+
+    private static List<String> reversed(List<String> ids) {
+        List<String> copy = new ArrayList<>(ids);
+        Collections.reverse(copy);
+        return copy;
+    }
+
+    private static FrameAnalysisResult frame(double timestamp, PersonInfo... people) {
+        return FrameAnalysisResult.builder()
+                .timestamp(timestamp)
+                .people(List.of(people))
+                .books(List.of())
+                .build();
+    }
+
+    private static FrameAnalysisResult books(double timestamp, BookInfo... books) {
+        return FrameAnalysisResult.builder()
+                .timestamp(timestamp)
+                .people(List.of())
+                .books(List.of(books))
+                .build();
+    }
+
+    private static PersonInfo person(double x, double y) {
+        return PersonInfo.builder()
+                .boundingBox(BoundingBox.builder().x(x).y(y).width(100.0).height(200.0).build())
+                .build();
+    }
+
+    private static BookInfo book(String isbn, String title) {
+        return BookInfo.builder().isbn(isbn).bookName(title).build();
+    }
+}
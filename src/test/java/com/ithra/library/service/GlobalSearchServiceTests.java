@@ -0,0 +1,140 @@
+package com.ithra.library.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ithra.library.dto.GlobalSearchHit;
+import com.ithra.library.dto.GlobalSearchRequest;
+import com.ithra.library.entity.DetectedPerson;
+import com.ithra.library.entity.MediaFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the Criteria queries against a local PostgreSQL with the real dialect, e.g.
+ * GLOBAL_SEARCH_TEST_URL=jdbc:postgresql://localhost:5432/mydb?user=postgres&password=password
+ * The tables are created in a throwaway schema.
+ */
+@EnabledIfEnvironmentVariable(named = "GLOBAL_SEARCH_TEST_URL", matches = ".+")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import(GlobalSearchService.class)
+class GlobalSearchServiceTests {
+
+    private static final String SCHEMA = "global_search_test";
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("GLOBAL_SEARCH_TEST_URL"));
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.jpa.properties.hibernate.default_schema", () -> SCHEMA);
+        registry.add("spring.jpa.properties.hibernate.hbm2ddl.create_namespaces", () -> "true");
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private GlobalSearchService searchService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void createDetections() {
+        MediaFile mediaFile = entityManager.persist(MediaFile.builder()
+                .fileName("hours.mp4")
+                .fileType(MediaFile.FileType.VIDEO)
+                .status(MediaFile.ProcessingStatus.COMPLETED)
+                .build());
+
+        person(mediaFile, DetectedPerson.AgeCategory.CHILD, LocalDateTime.of(2026, 3, 2, 15, 30));
+        person(mediaFile, DetectedPerson.AgeCategory.CHILD, LocalDateTime.of(2026, 3, 2, 17, 10));
+        person(mediaFile, DetectedPerson.AgeCategory.ADULT, LocalDateTime.of(2026, 3, 2, 16, 0));
+        person(mediaFile, DetectedPerson.AgeCategory.CHILD, LocalDateTime.of(2026, 3, 2, 23, 0));
+        person(mediaFile, DetectedPerson.AgeCategory.CHILD, LocalDateTime.of(2026, 3, 3, 1, 15));
+        entityManager.clear();
+    }
+
+    @Test
+    void filtersByHourOfDay() throws IOException {
+        List<GlobalSearchHit> hits = search(GlobalSearchRequest.builder()
+                .ageCategory(DetectedPerson.AgeCategory.CHILD)
+                .fromHour(15)
+                .toHour(17)
+                .build());
+
+        assertThat(hits).extracting(GlobalSearchHit::getId).containsExactly(ids.get(0));
+    }
+
+    @Test
+    void hourWindowWrapsPastMidnight() throws IOException {
+        List<GlobalSearchHit> hits = search(GlobalSearchRequest.builder()
+                .fromHour(22)
+                .toHour(2)
+                .build());
+
+        assertThat(hits).extracting(GlobalSearchHit::getId).containsExactly(ids.get(3), ids.get(4));
+    }
+
+    @Test
+    void pagesWithKeysetCursor() throws IOException {
+        List<GlobalSearchHit> first = search(GlobalSearchRequest.builder().limit(2).build());
+        GlobalSearchHit last = first.get(first.size() - 1);
+        List<GlobalSearchHit> rest = search(GlobalSearchRequest.builder()
+                .afterDetectedAt(last.getDetectedAt())
+                .afterId(last.getId())
+                .build());
+
+        assertThat(first).extracting(GlobalSearchHit::getId).containsExactly(ids.get(0), ids.get(2));
+        assertThat(rest).extracting(GlobalSearchHit::getId).containsExactly(ids.get(1), ids.get(3), ids.get(4));
+    }
+
+    private void person(MediaFile mediaFile, DetectedPerson.AgeCategory age, LocalDateTime detectedAt) {
+        DetectedPerson person = entityManager.persistAndFlush(DetectedPerson.builder()
+                .mediaFile(mediaFile)
+                .ageCategory(age)
+                .emotionalState(DetectedPerson.EmotionalState.NEUTRAL)
+                .confidence(0.9)
+                .build());
+        // detectedAt is a creation timestamp, so backdate it directly
+        entityManager.getEntityManager()
+                .createNativeQuery("UPDATE " + SCHEMA + ".detected_persons SET detected_at = ?1 WHERE id = ?2")
+                .setParameter(1, detectedAt)
+                .setParameter(2, person.getId())
+                .executeUpdate();
+        ids.add(person.getId());
+    }
+
+    private List<GlobalSearchHit> search(GlobalSearchRequest request) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        searchService.search(request).writeTo(out);
+
+        List<GlobalSearchHit> hits = new ArrayList<>();
+        for (String line : out.toString().split("\n")) {
+            if (!line.isBlank()) {
+                hits.add(objectMapper.readValue(line, GlobalSearchHit.class));
+            }
+        }
+        return hits;
+    }
+}
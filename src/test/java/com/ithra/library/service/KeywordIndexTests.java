@@ -0,0 +1,121 @@
+package com.ithra.library.service;
+
+import com.ithra.library.entity.DetectedBook;
+import com.ithra.library.entity.DetectedObject;
+import com.ithra.library.entity.MediaFile;
+import com.ithra.library.repository.DetectedBookRepository;
+import com.ithra.library.repository.DetectedObjectRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KeywordIndexTests {
+
+    private final DetectedObjectRepository objectRepository = mock(DetectedObjectRepository.class);
+    private final DetectedBookRepository bookRepository = mock(DetectedBookRepository.class);
+    private final KeywordIndex index = new KeywordIndex(objectRepository, bookRepository);
+
+    @BeforeEach
+    void indexDetections() {
+        ReflectionTestUtils.setField(index, "enabled", true);
+        index.index(
+                List.of(object(1L, 1L, "Laptop", "ELECTRONICS"), object(2L, 2L, "Coffee mug", "KITCHEN")),
+                List.of(book(1L, 1L, "Harry Potter and the Philosopher's Stone", "J.K. Rowling"),
+                        book(2L, 2L, "The Hobbit", "J.R.R. Tolkien")));
+    }
+
+    @Test
+    void tokenizesOnNonAlphanumerics() {
+        assertThat(KeywordIndex.tokenize("Harry Potter and the Philosopher's Stone", null, "J.K. Rowling"))
+                .containsExactly("harry", "potter", "and", "the", "philosopher", "stone", "rowling");
+        assertThat(KeywordIndex.tokenize("Mug-2024 MUG")).containsExactly("mug", "2024");
+    }
+
+    @Test
+    void termsAreAndedAndAlternativesOred() {
+        assertThat(ids("harry potter")).containsExactly(1L);
+        assertThat(ids("harry hobbit")).isEmpty();
+        assertThat(ids("harry OR hobbit")).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(ids("HOBBIT tolkien OR laptop")).containsExactlyInAnyOrder(2L, 1L);
+    }
+
+    @Test
+    void trailingStarMatchesPrefixes() {
+        assertThat(ids("pott*")).containsExactly(1L);
+        assertThat(ids("ro*")).containsExactly(1L);
+        assertThat(ids("mu* kitch*")).containsExactly(2L);
+        assertThat(ids("*")).isEmpty();
+    }
+
+    @Test
+    void filtersByMediaFile() {
+        assertThat(index.search("the", 2L)).extracting(KeywordIndex.Hit::mediaFileId).containsOnly(2L);
+    }
+
+    @Test
+    void removingMediaFileDropsItsPostings() {
+        int terms = index.getTermCount();
+        index.removeMediaFile(1L);
+
+        assertThat(index.search("harry OR laptop OR the", null))
+                .extracting(KeywordIndex.Hit::mediaFileId).containsOnly(2L);
+        assertThat(index.getTermCount()).isLessThan(terms);
+        assertThat(ids("hobbit")).containsExactly(2L);
+    }
+
+    @Test
+    void updatesDuringRebuildAreApplied() {
+        when(objectRepository.findAll(any(Pageable.class))).thenAnswer(invocation -> {
+            // A frame is committed and a media file deleted while the rebuild scans the table
+            index.index(List.of(object(3L, 3L, "Globe", "DECOR")), List.of());
+            index.removeMediaFile(2L);
+            return new PageImpl<>(List.of(object(2L, 2L, "Coffee mug", "KITCHEN")));
+        });
+        when(bookRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(List.of()));
+
+        index.rebuild();
+
+        assertThat(ids("globe")).containsExactly(3L);
+        assertThat(ids("mug")).isEmpty();
+        assertThat(ids("harry")).isEmpty();
+    }
+
+    private List<Long> ids(String query) {
+        return index.search(query, null).stream().map(KeywordIndex.Hit::detectionId).toList();
+    }
+
+    private static DetectedObject object(Long id, Long mediaFileId, String name, String category) {
+        return DetectedObject.builder()
+                .id(id)
+                .mediaFile(mediaFile(mediaFileId))
+                .objectName(name)
+                .category(category)
+                .timestamp(1.0)
+                .build();
+    }
+
+    private static DetectedBook book(Long id, Long mediaFileId, String name, String author) {
+        return DetectedBook.builder()
+                .id(id)
+                .mediaFile(mediaFile(mediaFileId))
+                .bookName(name)
+                .author(author)
+                .timestamp(2.0)
+                .build();
+    }
+
+    private static MediaFile mediaFile(Long id) {
+        MediaFile mediaFile = new MediaFile();
+        mediaFile.setId(id);
+        return mediaFile;
+    }
+}
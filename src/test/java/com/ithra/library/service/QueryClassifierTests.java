@@ -0,0 +1,57 @@
+package com.ithra.library.service;
+
+import com.ithra.library.dto.QueryRequest.QueryType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QueryClassifierTests {
+
+    @Test
+    void classifiesClearQueriesLocally() {
+        assertConfident("How many children are there?", QueryType.COUNT);
+        assertConfident("When did the first person arrive?", QueryType.TEMPORAL);
+        assertConfident("Is there a laptop on the table?", QueryType.SEARCH);
+        assertConfident("harry potter", QueryType.SEARCH);
+        assertConfident("What is the man doing?", QueryType.CONTEXTUAL);
+        assertConfident("Describe the video", QueryType.GENERAL);
+    }
+
+    @Test
+    void mixedCuesAreUncertain() {
+        QueryClassifier.Classification result =
+                QueryClassifier.score(QueryClassifier.normalize("How many books were visible after 5 minutes?"));
+        assertThat(result.confidence()).isLessThan(0.6);
+    }
+
+    @Test
+    void normalizesPunctuationButKeepsClockTimes() {
+        assertThat(QueryClassifier.normalize("  Question: what's at 2:30?! "))
+                .isEqualTo("question what's at 2:30");
+    }
+
+    @Test
+    void failedLlmClassificationIsNotCached() {
+        OpenAIService aiService = mock(OpenAIService.class);
+        when(aiService.requestQueryType("what is on the table"))
+                .thenThrow(new RuntimeException("timeout"))
+                .thenReturn(QueryType.SEARCH);
+        QueryClassifier classifier = new QueryClassifier(aiService, new SimpleMeterRegistry(), 0.6, true, 16);
+
+        assertThat(classifier.classify("what is on the table")).isEqualTo(QueryType.GENERAL);
+        assertThat(classifier.classify("what is on the table")).isEqualTo(QueryType.SEARCH);
+        assertThat(classifier.classify("what is on the table")).isEqualTo(QueryType.SEARCH);
+        verify(aiService, times(2)).requestQueryType("what is on the table");
+    }
+
+    private static void assertConfident(String query, QueryType expected) {
+        QueryClassifier.Classification result = QueryClassifier.score(QueryClassifier.normalize(query));
+        assertThat(result.type()).isEqualTo(expected);
+        assertThat(result.confidence()).isGreaterThanOrEqualTo(0.6);
+    }
+}